@@ -1,12 +1,18 @@
 package am.aua.chess;
 
 import am.aua.chess.cli.ChessConsole;
+import am.aua.chess.cli.PerftCommand;
+import am.aua.chess.cli.RateCommand;
+import am.aua.chess.cli.SearchCommand;
+import am.aua.chess.cli.SolveCommand;
+import am.aua.chess.cli.ValidateCommand;
 import am.aua.chess.core.Chess;
 import am.aua.chess.puzzles.Puzzle;
 import am.aua.chess.ui.ChessUI;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
+import java.util.Arrays;
 import java.util.Scanner;
 
 /**
@@ -28,8 +34,65 @@ public class Main {
                System.exit(-1);
             }
          }
+         else if (args[0].equals("-perft")){
+            try {
+               PerftCommand perft = new PerftCommand(Arrays.copyOfRange(args, 1, args.length));
+               if (!perft.run())
+                  System.exit(-1);
+            } catch (IllegalArgumentException e) {
+               System.out.println(e.getMessage() + "\nUsage: java  am.aua.chess.Main " + PerftCommand.USAGE);
+               System.exit(-1);
+            }
+         }
+         else if (args[0].equals("-search")){
+            try {
+               new SearchCommand(Arrays.copyOfRange(args, 1, args.length)).run();
+            } catch (IllegalArgumentException e) {
+               System.out.println(e.getMessage() + "\nUsage: java  am.aua.chess.Main " + SearchCommand.USAGE);
+               System.exit(-1);
+            } catch (Exception e) {
+               System.out.println("An error occurred: " + e.getMessage());
+               System.exit(-1);
+            }
+         }
+         else if (args[0].equals("-validate")){
+            try {
+               if (!new ValidateCommand(Arrays.copyOfRange(args, 1, args.length)).run())
+                  System.exit(-1);
+            } catch (IllegalArgumentException e) {
+               System.out.println(e.getMessage() + "\nUsage: java  am.aua.chess.Main " + ValidateCommand.USAGE);
+               System.exit(-1);
+            } catch (Exception e) {
+               System.out.println("An error occurred: " + e.getMessage());
+               System.exit(-1);
+            }
+         }
+         else if (args[0].equals("-solve")){
+            try {
+               if (!new SolveCommand(Arrays.copyOfRange(args, 1, args.length)).run())
+                  System.exit(-1);
+            } catch (IllegalArgumentException e) {
+               System.out.println(e.getMessage() + "\nUsage: java  am.aua.chess.Main " + SolveCommand.USAGE);
+               System.exit(-1);
+            } catch (Exception e) {
+               System.out.println("An error occurred: " + e.getMessage());
+               System.exit(-1);
+            }
+         }
+         else if (args[0].equals("-rate")){
+            try {
+               if (!new RateCommand(Arrays.copyOfRange(args, 1, args.length)).run())
+                  System.exit(-1);
+            } catch (IllegalArgumentException e) {
+               System.out.println(e.getMessage() + "\nUsage: java  am.aua.chess.Main " + RateCommand.USAGE);
+               System.exit(-1);
+            } catch (Exception e) {
+               System.out.println("An error occurred: " + e.getMessage());
+               System.exit(-1);
+            }
+         }
          else{
-            System.out.println("No such option: " + args[0] + "\nUsage: java  am.aua.chess.Main [-console]");
+            System.out.println("No such option: " + args[0] + "\nUsage: java  am.aua.chess.Main [-console | " + PerftCommand.USAGE + " | " + SearchCommand.USAGE + " | " + ValidateCommand.USAGE + " | " + SolveCommand.USAGE + " | " + RateCommand.USAGE + "]");
             System.exit(-1);
          }
       }
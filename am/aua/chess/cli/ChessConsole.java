@@ -1,6 +1,9 @@
 package am.aua.chess.cli;
 
 import am.aua.chess.core.*;
+import am.aua.chess.engine.SearchLimits;
+import am.aua.chess.engine.SearchResult;
+import am.aua.chess.engine.Searcher;
 import am.aua.chess.puzzles.Puzzle;
 import am.aua.chess.puzzles.PuzzleDatabase;
 import am.aua.chess.utils.ArrayTools;
@@ -14,7 +17,11 @@ import java.util.Scanner;
  * The ChessConsole class represents a console-based interface for playing chess.
  */
 public class ChessConsole {
+    /** The time the engine may think about a hint, in milliseconds. */
+    private static final long HINT_TIME_MILLIS = 100;
     private Chess game;
+    // Created on the first hint and kept, so its transposition table is allocated once and carries over between hints.
+    private Searcher hintSearcher;
     private PuzzleDatabase database = new PuzzleDatabase();
     /**
      * Gets the Chess object representing the game.
@@ -77,7 +84,7 @@ public class ChessConsole {
     public void print(Position selectedPosition, ArrayList<Position> availablePositions){
         // printing the board upside down (for white pieces to occur at the bottom of the board)
         System.out.printf("\n\nTurn: %s    MoveCounts: %d\n\n", (this.game.getTurn()), this.game.getMoveCount() );
-        String[][] board = selectedPosition==null?this.prettifyBoard(this.game.getBoard(), availablePositions):this.prettifyBoard(this.game.getBoard(), selectedPosition, availablePositions);
+        String[][] board = selectedPosition==null?this.prettifyBoard(this.game.getBoardView(), availablePositions):this.prettifyBoard(this.game.getBoardView(), selectedPosition, availablePositions);
         for (int i = board.length-1; i >= 0; i--) {
             System.out.print((i+1) + "| ");
             ArrayTools.printArray1D(board[i], "");
@@ -113,13 +120,13 @@ public class ChessConsole {
     
     /**
      * Prettifies the board for printing.
-     * @param board The 2D array representing the board.
+     * @param board The view of the board.
      * @param highlightCell The cell to highlight.
      * @return The prettified board.
      * @Note: The prettified board is a 2D array of strings, where each string is a cell in the board.
      * The empty space is represented by <code>"\u2009\u2009\u200A\u200A\u200A"</code> \ u2009 is a thin space, \ u200A is a hair space.
      */
-    private String[][] prettifyBoard(Piece[][] board, Position highlightCell){
+    private String[][] prettifyBoard(BoardView board, Position highlightCell){
         ArrayList<Position> highlightCells = new ArrayList<>(1);
         highlightCells.add(highlightCell);
         return prettifyBoard(board, highlightCells);
@@ -127,35 +134,35 @@ public class ChessConsole {
 
     /**
      * Prettifies the board for printing with multiple highlighted cells.
-     * @param board The 2D array representing the board.
+     * @param board The view of the board.
      * @param highlightCells The cells to highlight.
      * @return The prettified board.
      */
-    private String[][] prettifyBoard(Piece[][] board,ArrayList<Position> highlightCells){
+    private String[][] prettifyBoard(BoardView board,ArrayList<Position> highlightCells){
         return prettifyBoard(board, null, highlightCells);
     }
 
     /**
      * Prettifies the board for printing with multiple highlighted cells.
-     * @param board The 2D array representing the board.
+     * @param board The view of the board.
      * @param selectedCell The cell to highlight with yellow.
      * @param highlightCells The cells to highlight.
      * @return The prettified board.
      */
-    private String[][] prettifyBoard(Piece[][] board, Position selectedCell, ArrayList<Position> highlightCells){
-        String[][] prettyBoard = new String[board.length][board[0].length];
+    private String[][] prettifyBoard(BoardView board, Position selectedCell, ArrayList<Position> highlightCells){
+        String[][] prettyBoard = new String[Chess.BOARD_RANKS][Chess.BOARD_FILES];
         String cellColor;
-        for (int i=0; i<board.length; i++){
-            for (int j=0; j<board[i].length; j++){
+        for (int i=0; i<Chess.BOARD_RANKS; i++){
+            for (int j=0; j<Chess.BOARD_FILES; j++){
                 cellColor = (i+j)%2==1? "\u001b[47;1m" : "\u001b[40;1m";
-                if (highlightCells.contains(new Position(i,j))){
+                if (highlightCells.contains(Position.generateFromRankAndFile(i,j))){
                     cellColor = "\u001b[42;1m\u001b[52;1m";
                 }
-                prettyBoard[i][j] = cellColor + "\u2009" + getPieceSymbol(board[i][j]) + "\u2009" + "\u001b[0m";
+                prettyBoard[i][j] = cellColor + "\u2009" + getPieceSymbol(board.pieceAt(Position.generateFromRankAndFile(i,j))) + "\u2009" + "\u001b[0m";
             }
         }
         if (selectedCell != null){
-            prettyBoard[selectedCell.getRank()][selectedCell.getFile()] = "\u001b[43;1m\u2009" + getPieceSymbol(board[selectedCell.getRank()][selectedCell.getFile()]) + "\u2009\u001b[0m";
+            prettyBoard[selectedCell.getRank()][selectedCell.getFile()] = "\u001b[43;1m\u2009" + getPieceSymbol(board.pieceAt(selectedCell)) + "\u2009\u001b[0m";
         }
         return prettyBoard;
     }
@@ -181,6 +188,14 @@ public class ChessConsole {
                     return;
                 }
 
+                if (input[0].equals("hint")) {
+                    if (hintSearcher == null)
+                        hintSearcher = new Searcher();
+                    SearchResult hint = hintSearcher.search(game, SearchLimits.time(HINT_TIME_MILLIS));
+                    System.out.println("Hint: " + hint);
+                    continue;
+                }
+
                 if (input[0].equals("debug")) {
                     debug();
                     print();
@@ -206,6 +221,10 @@ public class ChessConsole {
                     }
 
                     p2 = Position.generateFromString(input[1]);
+                    if (p2 == null) {
+                        System.out.println("Invalid position. Please try again.");
+                        continue;
+                    }
 
                     Move m = new Move(p1, p2);
                     System.out.println("MOVE " + m.toString());
@@ -224,6 +243,22 @@ public class ChessConsole {
                 }
             }
         }
+        printResult();
+    }
+
+    /**
+     * Prints how the finished game ended.
+     */
+    private void printResult() {
+        switch (game.getGameStatus()) {
+            case CHECKMATE -> System.out.println("Checkmate! "
+                    + (game.getTurn() == Chess.PieceColor.WHITE ? Chess.PieceColor.BLACK : Chess.PieceColor.WHITE) + " wins.");
+            case STALEMATE -> System.out.println("Stalemate. The game is drawn.");
+            case THREEFOLD_REPETITION -> System.out.println("The position has occurred three times. The game is drawn.");
+            case FIFTY_MOVE_RULE -> System.out.println("Fifty moves without a capture or a pawn move. The game is drawn.");
+            case INSUFFICIENT_MATERIAL -> System.out.println("Neither side can checkmate. The game is drawn.");
+            default -> { }
+        }
     }
 
     public void run(){
@@ -242,7 +277,7 @@ public class ChessConsole {
                     for (int i = 0; i < databaseSize; i++)
                         System.out.println(i + ": " + database.getPuzzle(i));
                 } else if (inputLine.startsWith("a "))
-                    database.addPuzzlesFromFile(inputLine.substring(2));
+                    System.out.println(database.addPuzzlesFromFile(inputLine.substring(2)));
                 else if (inputLine.startsWith("p ")) {
                     int puzzleNumber = Integer.parseInt(inputLine.substring(2));
                     Puzzle puzzle = database.getPuzzle(puzzleNumber);
@@ -0,0 +1,130 @@
+package am.aua.chess.cli;
+
+import am.aua.chess.core.Chess;
+import am.aua.chess.core.Perft;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The PerftCommand class runs perft counts from the command line.
+ * It either counts one reference position, optionally divided by root move,
+ * or checks every reference position against its published counts.
+ */
+public class PerftCommand {
+    /** The usage line of the perft command. */
+    public static final String USAGE = "-perft <depth> [-divide | -threads <n>] [-position <name>] | -perft <depth> -suite [-threads <n>]";
+
+    private int depth;
+    private boolean divide;
+    private boolean suite;
+    private int threads = 1;
+    private Perft.ReferencePosition position = Perft.ReferencePosition.START;
+
+    /**
+     * Constructs a new PerftCommand from the command line arguments following "-perft".
+     * @param args The arguments: the depth, then the options.
+     * @throws IllegalArgumentException If the arguments are malformed.
+     */
+    public PerftCommand(String[] args) {
+        if (args.length == 0)
+            throw new IllegalArgumentException("The perft depth is missing.");
+        try {
+            this.depth = Integer.parseInt(args[0]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The perft depth should be a number: " + args[0]);
+        }
+        if (this.depth < 1)
+            throw new IllegalArgumentException("The perft depth should be at least 1.");
+
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-divide"))
+                this.divide = true;
+            else if (args[i].equals("-suite"))
+                this.suite = true;
+            else if (args[i].equals("-threads") && i + 1 < args.length)
+                this.threads = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-position") && i + 1 < args.length)
+                this.position = Perft.ReferencePosition.valueOf(args[++i].toUpperCase());
+            else
+                throw new IllegalArgumentException("Unknown perft option: " + args[i]);
+        }
+        if (this.threads < 1)
+            throw new IllegalArgumentException("The number of threads should be at least 1.");
+        if (this.divide && this.threads > 1)
+            throw new IllegalArgumentException("The divide output is only available on one thread.");
+    }
+
+    /**
+     * Runs the command and prints the counts with the measured nodes per second.
+     * @return true if every count with a published reference value matched it, false otherwise.
+     */
+    public boolean run() {
+        if (!this.suite)
+            return this.count(this.position, this.depth, this.divide);
+
+        boolean passed = true;
+        for (Perft.ReferencePosition reference : Perft.ReferencePosition.values())
+            for (int d = 1; d <= Math.min(this.depth, reference.getMaxDepth()); d++)
+                passed &= this.count(reference, d, false);
+        System.out.println(passed ? "All perft counts match." : "Some perft counts do NOT match!");
+        return passed;
+    }
+
+    /**
+     * Counts one position at one depth and prints the result.
+     * @param reference The reference position to count.
+     * @param depth The depth to count to.
+     * @param divide Whether to print the count below every root move.
+     * @return true if the count matches the published one or none is published, false otherwise.
+     */
+    private boolean count(Perft.ReferencePosition reference, int depth, boolean divide) {
+        Chess chess = reference.createGame();
+        long nodes = 0;
+        long start = System.nanoTime();
+        if (this.threads > 1) {
+            nodes = this.countInParallel(chess, depth);
+        } else if (divide) {
+            for (Map.Entry<String, Long> entry : Perft.divide(chess, depth).entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+                nodes += entry.getValue();
+            }
+        } else {
+            nodes = Perft.perft(chess, depth);
+        }
+        long elapsed = Math.max(1, System.nanoTime() - start);
+
+        System.out.printf("%s depth %d: %d nodes in %.3f s (%.0f nodes/s)", reference, depth, nodes,
+                elapsed / 1e9, nodes * 1e9 / elapsed);
+        if (depth > reference.getMaxDepth()) {
+            System.out.println();
+            return true;
+        }
+        long expected = reference.getExpectedCount(depth);
+        System.out.println(expected == nodes ? "  OK" : "  MISMATCH, expected " + expected);
+        return expected == nodes;
+    }
+
+    /**
+     * Counts one position on a fork-join pool and prints the work done by every thread.
+     * @param chess The game to count from.
+     * @param depth The depth to count to.
+     * @return The number of leaf nodes.
+     */
+    private long countInParallel(Chess chess, int depth) {
+        ForkJoinPool pool = new ForkJoinPool(this.threads);
+        try {
+            Perft.ParallelResult result = Perft.parallelPerft(chess, depth, pool);
+            Map<String, Long> busyNanos = result.getBusyNanosPerThread();
+            for (Map.Entry<String, Long> entry : result.getNodesPerThread().entrySet()) {
+                long nanos = Math.max(1, busyNanos.get(entry.getKey()));
+                System.out.printf("  %s: %d nodes (%.0f nodes/s)%n", entry.getKey(), entry.getValue(),
+                        entry.getValue() * 1e9 / nanos);
+            }
+            System.out.printf("  %d threads, speedup %.2fx%n", this.threads, result.getSpeedup());
+            return result.getNodes();
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package am.aua.chess.cli;
+
+import am.aua.chess.puzzles.Puzzle;
+import am.aua.chess.puzzles.PuzzleDatabase;
+import am.aua.chess.puzzles.PuzzleRater;
+import am.aua.chess.puzzles.RatingReport;
+import am.aua.chess.utils.IllegalArrangementException;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The RateCommand class rates the difficulty of puzzles from the command line: either one puzzle,
+ * whose rating is printed, or every puzzle of the database not rated yet, whose ratings are then recorded
+ * so that queries in PuzzleQuery.Order.RATING serve the puzzles from the easiest to the hardest.
+ */
+public class RateCommand {
+    /** The usage line of the rate command. */
+    public static final String USAGE = "-rate [-depth <d>] [-threads <n>] [-puzzle <number>]";
+
+    private int depth = PuzzleRater.DEFAULT_DEPTH;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int puzzleNumber = -1;
+
+    /**
+     * Constructs a new RateCommand from the command line arguments following "-rate".
+     * @param args The options.
+     * @throws IllegalArgumentException If the arguments are malformed.
+     */
+    public RateCommand(String[] args) {
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("-depth") && i + 1 < args.length)
+                    this.depth = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-threads") && i + 1 < args.length)
+                    this.threads = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-puzzle") && i + 1 < args.length)
+                    this.puzzleNumber = Integer.parseInt(args[++i]);
+                else
+                    throw new IllegalArgumentException("Unknown rate option: " + args[i]);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Rate options should be numbers: " + e.getMessage());
+        }
+        if (this.threads < 1)
+            throw new IllegalArgumentException("The number of threads should be at least 1.");
+    }
+
+    /**
+     * Runs the rating and prints either the rating of the puzzle, or the report on the database
+     * with the number of puzzles rated per second.
+     * @return true if no puzzle is illegal, false otherwise.
+     * @throws IllegalArrangementException If the given puzzle's arrangement is invalid.
+     */
+    public boolean run() throws IllegalArrangementException {
+        ForkJoinPool pool = new ForkJoinPool(this.threads);
+        try {
+            PuzzleRater rater = new PuzzleRater(pool, this.depth);
+            PuzzleDatabase database = new PuzzleDatabase();
+            long start = System.nanoTime();
+            if (this.puzzleNumber >= 0) {
+                Puzzle puzzle = database.getPuzzle(this.puzzleNumber);
+                System.out.println(puzzle);
+                System.out.println(rater.rate(puzzle));
+                return true;
+            }
+
+            RatingReport report = database.rateDifficulties(rater);
+            long elapsed = Math.max(1, System.nanoTime() - start);
+            System.out.println(report);
+            System.out.printf("%d threads: %.3f s (%.0f puzzles/s)%n", this.threads, elapsed / 1e9,
+                    report.getRated() * 1e9 / elapsed);
+            return report.getInvalid() == 0;
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package am.aua.chess.cli;
+
+import am.aua.chess.core.Chess;
+import am.aua.chess.core.Perft;
+import am.aua.chess.engine.ParallelSearcher;
+import am.aua.chess.engine.SearchLimits;
+import am.aua.chess.engine.SearchResult;
+import am.aua.chess.puzzles.Puzzle;
+import am.aua.chess.puzzles.PuzzleDatabase;
+import am.aua.chess.utils.IllegalArrangementException;
+
+/**
+ * The SearchCommand class analyses a position with the engine from the command line,
+ * on one or more threads, and prints the best move with the time it took.
+ */
+public class SearchCommand {
+    /** The usage line of the search command. */
+    public static final String USAGE = "-search [-depth <d>] [-time <ms>] [-threads <n>] [-position <name> | -puzzle <number>]";
+
+    private int depth = SearchLimits.MAX_DEPTH;
+    private long timeMillis = SearchLimits.UNLIMITED;
+    private int threads = 1;
+    private Perft.ReferencePosition position = Perft.ReferencePosition.START;
+    private int puzzleNumber = -1;
+
+    /**
+     * Constructs a new SearchCommand from the command line arguments following "-search".
+     * Without a depth or a time, the search is limited to 10 seconds.
+     * @param args The options.
+     * @throws IllegalArgumentException If the arguments are malformed.
+     */
+    public SearchCommand(String[] args) {
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("-depth") && i + 1 < args.length)
+                    this.depth = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-time") && i + 1 < args.length)
+                    this.timeMillis = Long.parseLong(args[++i]);
+                else if (args[i].equals("-threads") && i + 1 < args.length)
+                    this.threads = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-position") && i + 1 < args.length)
+                    this.position = Perft.ReferencePosition.valueOf(args[++i].toUpperCase());
+                else if (args[i].equals("-puzzle") && i + 1 < args.length)
+                    this.puzzleNumber = Integer.parseInt(args[++i]);
+                else
+                    throw new IllegalArgumentException("Unknown search option: " + args[i]);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Search options should be numbers: " + e.getMessage());
+        }
+        if (this.depth < 1 || this.timeMillis < 1)
+            throw new IllegalArgumentException("The search depth and time should be positive.");
+        if (this.threads < 1)
+            throw new IllegalArgumentException("The number of threads should be at least 1.");
+        if (this.depth == SearchLimits.MAX_DEPTH && this.timeMillis == SearchLimits.UNLIMITED)
+            this.timeMillis = 10000;
+    }
+
+    /**
+     * Runs the search and prints the best move, the reached depth, the time and the nodes per second.
+     * @throws IllegalArrangementException If the puzzle's arrangement is invalid.
+     */
+    public void run() throws IllegalArrangementException {
+        Chess chess;
+        if (this.puzzleNumber >= 0) {
+            Puzzle puzzle = new PuzzleDatabase().getPuzzle(this.puzzleNumber);
+            System.out.println(puzzle);
+            chess = new Chess(puzzle.getArrangement(), puzzle.getTurn());
+        } else {
+            System.out.println(this.position);
+            chess = this.position.createGame();
+        }
+
+        SearchLimits limits = new SearchLimits(this.depth, this.timeMillis, SearchLimits.UNLIMITED);
+        SearchResult result = new ParallelSearcher(this.threads).search(chess, limits);
+        long elapsed = Math.max(1, result.getElapsedMillis());
+        System.out.println(result);
+        System.out.printf("%d threads: depth %d in %.3f s (%.0f nodes/s)%n", this.threads, result.getDepth(),
+                elapsed / 1e3, result.getNodes() * 1e3 / elapsed);
+    }
+}
@@ -0,0 +1,85 @@
+package am.aua.chess.cli;
+
+import am.aua.chess.engine.MateResult;
+import am.aua.chess.puzzles.Puzzle;
+import am.aua.chess.puzzles.PuzzleDatabase;
+import am.aua.chess.puzzles.PuzzleSolver;
+import am.aua.chess.puzzles.SolveReport;
+import am.aua.chess.utils.IllegalArrangementException;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The SolveCommand class searches puzzles for forced mates from the command line: either one puzzle,
+ * whose mate is printed, or the whole database, whose puzzles are tagged with their mate depth and solution.
+ */
+public class SolveCommand {
+    /** The usage line of the solve command. */
+    public static final String USAGE = "-solve [-moves <n>] [-nodes <n>] [-threads <n>] [-puzzle <number>]";
+
+    private int moves = 5;
+    private long nodes = 1_000_000;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int puzzleNumber = -1;
+
+    /**
+     * Constructs a new SolveCommand from the command line arguments following "-solve".
+     * By default, mates are searched within 5 moves and 1,000,000 nodes per puzzle.
+     * @param args The options.
+     * @throws IllegalArgumentException If the arguments are malformed.
+     */
+    public SolveCommand(String[] args) {
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("-moves") && i + 1 < args.length)
+                    this.moves = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-nodes") && i + 1 < args.length)
+                    this.nodes = Long.parseLong(args[++i]);
+                else if (args[i].equals("-threads") && i + 1 < args.length)
+                    this.threads = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-puzzle") && i + 1 < args.length)
+                    this.puzzleNumber = Integer.parseInt(args[++i]);
+                else
+                    throw new IllegalArgumentException("Unknown solve option: " + args[i]);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Solve options should be numbers: " + e.getMessage());
+        }
+        if (this.threads < 1)
+            throw new IllegalArgumentException("The number of threads should be at least 1.");
+    }
+
+    /**
+     * Runs the search and prints either the mate of the puzzle, or the report on the database
+     * with the number of puzzles solved per second.
+     * @return true if no puzzle is illegal or contradicts its description, false otherwise.
+     * @throws IllegalArrangementException If the given puzzle's arrangement is invalid.
+     */
+    public boolean run() throws IllegalArrangementException {
+        ForkJoinPool pool = new ForkJoinPool(this.threads);
+        try {
+            PuzzleSolver solver = new PuzzleSolver(pool, this.moves, this.nodes);
+            PuzzleDatabase database = new PuzzleDatabase();
+            long start = System.nanoTime();
+            if (this.puzzleNumber >= 0) {
+                Puzzle puzzle = database.getPuzzle(this.puzzleNumber);
+                System.out.println(puzzle);
+                MateResult result = solver.solve(puzzle);
+                System.out.println(result);
+                String contradiction = PuzzleSolver.checkClaim(puzzle, result);
+                if (contradiction != null)
+                    System.out.println("Warning: " + contradiction);
+                return contradiction == null;
+            }
+
+            SolveReport report = database.solveMates(solver);
+            long elapsed = Math.max(1, System.nanoTime() - start);
+            System.out.println(report);
+            System.out.printf("%d threads: %.3f s (%.0f puzzles/s)%n", this.threads, elapsed / 1e9,
+                    report.getChecked() * 1e9 / elapsed);
+            return report.getInvalid() == 0 && report.getContradicted() == 0;
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package am.aua.chess.cli;
+
+import am.aua.chess.puzzles.PuzzleDatabase;
+import am.aua.chess.puzzles.PuzzleValidator;
+import am.aua.chess.puzzles.ValidationReport;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The ValidateCommand class checks from the command line that puzzles are legal chess positions,
+ * either those of a file or those of the database, and prints the report of bad records.
+ */
+public class ValidateCommand {
+    /** The usage line of the validate command. */
+    public static final String USAGE = "-validate [<file>] [-threads <n>]";
+
+    private String file;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Constructs a new ValidateCommand from the command line arguments following "-validate".
+     * Without a file, the puzzles of the database are validated.
+     * @param args The file, then the options.
+     * @throws IllegalArgumentException If the arguments are malformed.
+     */
+    public ValidateCommand(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-threads") && i + 1 < args.length) {
+                try {
+                    this.threads = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("The number of threads should be a number: " + args[i]);
+                }
+            }
+            else if (i == 0 && !args[i].startsWith("-"))
+                this.file = args[i];
+            else
+                throw new IllegalArgumentException("Unknown validate option: " + args[i]);
+        }
+        if (this.threads < 1)
+            throw new IllegalArgumentException("The number of threads should be at least 1.");
+    }
+
+    /**
+     * Runs the validation and prints the report with the number of records checked per second.
+     * @return true if every record is a legal puzzle, false otherwise.
+     * @throws IOException If the file cannot be read.
+     */
+    public boolean run() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(this.threads);
+        try {
+            long start = System.nanoTime();
+            PuzzleValidator validator = new PuzzleValidator(pool);
+            ValidationReport report = this.file == null
+                    ? validator.validate(new PuzzleDatabase().getSnapshot())
+                    : validator.validateFile(Paths.get(this.file));
+            long elapsed = Math.max(1, System.nanoTime() - start);
+            System.out.println(report);
+            System.out.printf("%d threads: %.3f s (%.0f records/s)%n", this.threads, elapsed / 1e9,
+                    report.getChecked() * 1e9 / elapsed);
+            return report.getInvalid() == 0;
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -69,7 +69,7 @@ public class Bishop extends Piece {
                     result.add(current);
                 else {
                     assert current != null;
-                    if (chess.getPieceAt(current).getPieceColor() != chess.getPieceAt(p).getPieceColor())
+                    if (chess.getPieceColorAt(current) != chess.getPieceColorAt(p))
                         result.add(current);
 
                     break;
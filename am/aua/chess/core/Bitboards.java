@@ -0,0 +1,290 @@
+package am.aua.chess.core;
+
+/**
+ * The Bitboards class provides the constants and helpers of the bitboard position model.
+ * A bitboard is a 64-bit long where bit i is set if square i is occupied, with the squares
+ * numbered rank by rank starting from A1 (0) up to H8 (63). This is the same order as the
+ * characters of an arrangement string.
+ */
+public final class Bitboards {
+    /** The type index of a pawn. */
+    public static final int PAWN = 0;
+    /** The type index of a knight. */
+    public static final int KNIGHT = 1;
+    /** The type index of a bishop. */
+    public static final int BISHOP = 2;
+    /** The type index of a rook. */
+    public static final int ROOK = 3;
+    /** The type index of a queen. */
+    public static final int QUEEN = 4;
+    /** The type index of a king. */
+    public static final int KING = 5;
+    /** The number of piece types of one color. */
+    public static final int PIECE_TYPES = 6;
+    /** The number of bitboards needed to describe a position (one per piece type and color). */
+    public static final int PIECE_INDICES = 2 * PIECE_TYPES;
+    /** The index used when there is no piece on a square. */
+    public static final int NO_PIECE = -1;
+    /** The number of squares of the chess board. */
+    public static final int SQUARES = Chess.BOARD_RANKS * Chess.BOARD_FILES;
+
+    /** The squares attacked by a knight standing on each square. */
+    private static final long[] KNIGHT_ATTACKS = new long[SQUARES];
+    /** The squares attacked by a king standing on each square. */
+    private static final long[] KING_ATTACKS = new long[SQUARES];
+    /** The squares attacked by a pawn of each color standing on each square. */
+    private static final long[][] PAWN_ATTACKS = new long[2][SQUARES];
+    /** The squares of each ray direction starting next to each square, up to the board edge. */
+    private static final long[][] RAYS = new long[8][SQUARES];
+
+    // The ray directions. The first four walk towards higher square indices.
+    private static final int NORTH = 0;
+    private static final int EAST = 1;
+    private static final int NORTH_EAST = 2;
+    private static final int NORTH_WEST = 3;
+    private static final int SOUTH = 4;
+    private static final int WEST = 5;
+    private static final int SOUTH_WEST = 6;
+    private static final int SOUTH_EAST = 7;
+    private static final int[] RAY_RANK_OFFSETS = {1, 0, 1, 1, -1, 0, -1, -1};
+    private static final int[] RAY_FILE_OFFSETS = {0, 1, 1, -1, 0, -1, -1, 1};
+
+    static {
+        int[] knightRankOffsets = {-2, -2, 2, 2, -1, -1, 1, 1};
+        int[] knightFileOffsets = {-1, 1, -1, 1, -2, 2, -2, 2};
+        int[] kingRankOffsets = {-1, -1, 1, 1, 0, 0, -1, 1};
+        int[] kingFileOffsets = {-1, 1, -1, 1, -1, 1, 0, 0};
+
+        for (int square = 0; square < SQUARES; square++) {
+            int rank = rankOf(square);
+            int file = fileOf(square);
+            for (int d = 0; d < 8; d++) {
+                KNIGHT_ATTACKS[square] |= maskIfOnBoard(rank + knightRankOffsets[d], file + knightFileOffsets[d]);
+                KING_ATTACKS[square] |= maskIfOnBoard(rank + kingRankOffsets[d], file + kingFileOffsets[d]);
+
+                int i = rank + RAY_RANK_OFFSETS[d];
+                int j = file + RAY_FILE_OFFSETS[d];
+                while (i >= 0 && i < Chess.BOARD_RANKS && j >= 0 && j < Chess.BOARD_FILES) {
+                    RAYS[d][square] |= mask(square(i, j));
+                    i += RAY_RANK_OFFSETS[d];
+                    j += RAY_FILE_OFFSETS[d];
+                }
+            }
+            PAWN_ATTACKS[Chess.PieceColor.WHITE.ordinal()][square] =
+                    maskIfOnBoard(rank + 1, file - 1) | maskIfOnBoard(rank + 1, file + 1);
+            PAWN_ATTACKS[Chess.PieceColor.BLACK.ordinal()][square] =
+                    maskIfOnBoard(rank - 1, file - 1) | maskIfOnBoard(rank - 1, file + 1);
+        }
+    }
+
+    /** The characters representing the white pieces, ordered by type index. */
+    private static final String WHITE_SYMBOLS = "PNBRQK";
+    /** The characters representing the black pieces, ordered by type index. */
+    private static final String BLACK_SYMBOLS = "pnbrqk";
+
+    private Bitboards() {
+    }
+
+    /**
+     * Returns the square index of the given rank and file.
+     *
+     * @param rank the rank of the square (0 to 7)
+     * @param file the file of the square (0 to 7)
+     * @return the square index (0 to 63)
+     */
+    public static int square(int rank, int file) {
+        return rank * Chess.BOARD_FILES + file;
+    }
+
+    /**
+     * Returns the square index of the given position.
+     *
+     * @param p the position
+     * @return the square index (0 to 63)
+     */
+    public static int square(Position p) {
+        return p.getSquare();
+    }
+
+    /**
+     * Returns the rank of the given square index.
+     *
+     * @param square the square index
+     * @return the rank of the square
+     */
+    public static int rankOf(int square) {
+        return square >>> 3;
+    }
+
+    /**
+     * Returns the file of the given square index.
+     *
+     * @param square the square index
+     * @return the file of the square
+     */
+    public static int fileOf(int square) {
+        return square & 7;
+    }
+
+    /**
+     * Returns a bitboard with only the given square set.
+     *
+     * @param square the square index
+     * @return the single-square bitboard
+     */
+    public static long mask(int square) {
+        return 1L << square;
+    }
+
+    /**
+     * Returns the bitboard index of a piece of the given color and type.
+     *
+     * @param color the color of the piece
+     * @param type  the type index of the piece
+     * @return the bitboard index (0 to 11)
+     */
+    public static int pieceIndex(Chess.PieceColor color, int type) {
+        return color.ordinal() * PIECE_TYPES + type;
+    }
+
+    /**
+     * Returns the type index of the given bitboard index.
+     *
+     * @param pieceIndex the bitboard index
+     * @return the type index of the piece
+     */
+    public static int typeOf(int pieceIndex) {
+        return pieceIndex % PIECE_TYPES;
+    }
+
+    /**
+     * Returns the color of the given bitboard index.
+     *
+     * @param pieceIndex the bitboard index
+     * @return the color of the piece
+     */
+    public static Chess.PieceColor colorOf(int pieceIndex) {
+        return pieceIndex < PIECE_TYPES ? Chess.PieceColor.WHITE : Chess.PieceColor.BLACK;
+    }
+
+    /**
+     * Returns the bitboard index represented by an arrangement character.
+     * The characters of moved kings and rooks (L, S) map to the king and rook indices.
+     *
+     * @param c the arrangement character
+     * @return the bitboard index, or NO_PIECE if the character is not a piece
+     */
+    public static int pieceIndexOf(char c) {
+        if (c == 'L') c = 'K';
+        else if (c == 'l') c = 'k';
+        else if (c == 'S') c = 'R';
+        else if (c == 's') c = 'r';
+
+        int type = WHITE_SYMBOLS.indexOf(c);
+        if (type >= 0)
+            return type;
+        type = BLACK_SYMBOLS.indexOf(c);
+        if (type >= 0)
+            return PIECE_TYPES + type;
+        return NO_PIECE;
+    }
+
+    /**
+     * Returns the squares attacked by a knight on the given square.
+     *
+     * @param square the square index of the knight
+     * @return the attacked squares
+     */
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    /**
+     * Returns the squares attacked by a king on the given square.
+     *
+     * @param square the square index of the king
+     * @return the attacked squares
+     */
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * Returns the squares attacked by a pawn of the given color on the given square.
+     *
+     * @param color  the color of the pawn
+     * @param square the square index of the pawn
+     * @return the attacked squares
+     */
+    public static long pawnAttacks(Chess.PieceColor color, int square) {
+        return PAWN_ATTACKS[color.ordinal()][square];
+    }
+
+    /**
+     * Returns the squares attacked by a bishop on the given square.
+     *
+     * @param square   the square index of the bishop
+     * @param occupied the bitboard of all occupied squares
+     * @return the attacked squares, including the first blocker of every diagonal
+     */
+    public static long bishopAttacks(int square, long occupied) {
+        return rayAttacks(NORTH_EAST, square, occupied) | rayAttacks(NORTH_WEST, square, occupied)
+                | rayAttacks(SOUTH_EAST, square, occupied) | rayAttacks(SOUTH_WEST, square, occupied);
+    }
+
+    /**
+     * Returns the squares attacked by a rook on the given square.
+     *
+     * @param square   the square index of the rook
+     * @param occupied the bitboard of all occupied squares
+     * @return the attacked squares, including the first blocker of every line
+     */
+    public static long rookAttacks(int square, long occupied) {
+        return rayAttacks(NORTH, square, occupied) | rayAttacks(EAST, square, occupied)
+                | rayAttacks(SOUTH, square, occupied) | rayAttacks(WEST, square, occupied);
+    }
+
+    /**
+     * Returns the squares attacked by a queen on the given square.
+     *
+     * @param square   the square index of the queen
+     * @param occupied the bitboard of all occupied squares
+     * @return the attacked squares, including the first blocker of every line
+     */
+    public static long queenAttacks(int square, long occupied) {
+        return bishopAttacks(square, occupied) | rookAttacks(square, occupied);
+    }
+
+    /**
+     * Returns the squares of one ray direction up to and including the first blocker.
+     *
+     * @param direction the ray direction
+     * @param square    the square index the ray starts from
+     * @param occupied  the bitboard of all occupied squares
+     * @return the attacked squares along the ray
+     */
+    private static long rayAttacks(int direction, int square, long occupied) {
+        long attacks = RAYS[direction][square];
+        long blockers = attacks & occupied;
+        if (blockers != 0) {
+            int blocker = direction < SOUTH
+                    ? Long.numberOfTrailingZeros(blockers)
+                    : 63 - Long.numberOfLeadingZeros(blockers);
+            attacks ^= RAYS[direction][blocker];
+        }
+        return attacks;
+    }
+
+    /**
+     * Returns a single-square bitboard if the given rank and file are on the board.
+     *
+     * @param rank the rank of the square
+     * @param file the file of the square
+     * @return the single-square bitboard, or 0 if the square is off the board
+     */
+    private static long maskIfOnBoard(int rank, int file) {
+        if (rank < 0 || rank >= Chess.BOARD_RANKS || file < 0 || file >= Chess.BOARD_FILES)
+            return 0L;
+        return mask(square(rank, file));
+    }
+}
@@ -0,0 +1,63 @@
+package am.aua.chess.core;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * The BoardView interface gives read-only access to the squares of a game without copying the board.
+ * A view is live: it always shows the current position of the game it was taken from,
+ * and the game cannot be changed through it.
+ * Squares are indexed as in Bitboards, from 0 for A1 to 63 for H8.
+ */
+public interface BoardView {
+    /**
+     * Returns the piece standing on the given square.
+     * Pieces are immutable and shared, so the piece itself is returned.
+     *
+     * @param square the square index (0 to 63)
+     * @return the piece on the square, or null if the square is empty
+     */
+    Piece pieceAt(int square);
+
+    /**
+     * Returns the piece standing at the given position.
+     *
+     * @param p the position
+     * @return the piece at the position, or null if the position is empty
+     */
+    default Piece pieceAt(Position p) {
+        return this.pieceAt(p.getSquare());
+    }
+
+    /**
+     * Returns the occupied squares as a bitboard, with bit i set when square i holds a piece.
+     *
+     * @return the bitboard of the occupied squares
+     */
+    long occupied();
+
+    /**
+     * Returns an iterator over the indices of the occupied squares, from A1 to H8.
+     * The squares are taken when the iterator is created.
+     *
+     * @return an iterator over the occupied square indices
+     */
+    default PrimitiveIterator.OfInt occupiedSquares() {
+        long squares = this.occupied();
+        return new PrimitiveIterator.OfInt() {
+            private long remaining = squares;
+
+            public boolean hasNext() {
+                return remaining != 0;
+            }
+
+            public int nextInt() {
+                if (remaining == 0)
+                    throw new NoSuchElementException();
+                int square = Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                return square;
+            }
+        };
+    }
+}
@@ -1,17 +1,18 @@
 package am.aua.chess.core;
-import am.aua.chess.utils.ArrayTools;
 import am.aua.chess.utils.IllegalArrangementException;
 import am.aua.chess.utils.InvalidNumberOfKingsException;
 import am.aua.chess.utils.KingUnderAttackException;
 
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * The Chess class represents a chess game.
  * It contains methods to initialize the chess board, perform moves, and check game status.
- * The chess board is represented by a 2D array of characters.
- * Each chess piece is represented by a specific character.
+ * The chess board is represented by twelve bitboards, one per piece type and color
+ * (see {@link Bitboards}), so that occupancy and color queries are a few bitwise operations.
+ * Kings and rooks that have already moved are tracked in a separate bitboard.
  * The class also keeps track of the move count and the turn of the player.
  */
 public class Chess implements Cloneable{
@@ -30,8 +31,93 @@ public class Chess implements Cloneable{
         BLACK
     }
 
-    private Piece[][] board;
+    /**
+     * The GameStatus enum represents whether a game is still going on, and if not, how it ended.
+     */
+    public static enum GameStatus {
+        /**
+         * The side to move has a legal move and no draw rule applies.
+         */
+        IN_PROGRESS,
+        /**
+         * The side to move is in check and has no legal move, and has lost.
+         */
+        CHECKMATE,
+        /**
+         * The side to move is not in check and has no legal move.
+         */
+        STALEMATE,
+        /**
+         * The position has occurred three times with the same side to move.
+         */
+        THREEFOLD_REPETITION,
+        /**
+         * Fifty moves of each side have been made without a capture or a pawn move.
+         */
+        FIFTY_MOVE_RULE,
+        /**
+         * Neither side has the material left to checkmate.
+         */
+        INSUFFICIENT_MATERIAL
+    }
+
+    private long[] bitboards;
+    private long[] occupancy;
+    private long movedPieces;
     private int moveCount;
+    private int halfMoveClock;
+    private int enPassantSquare;
+    private long zobristKey;
+    private int middlegameScore;
+    private int endgameScore;
+    private int phase;
+    // Every made move leaves a packed undo record: the move, the captured piece,
+    // the moved flags of both squares, the previous en passant square and half-move clock.
+    // The position key before the move is kept at the same index of the key stack.
+    private long[] undoStack = new long[INITIAL_UNDO_CAPACITY];
+    private long[] keyStack = new long[INITIAL_UNDO_CAPACITY];
+    private int undoCount;
+    // Reused by the methods that generate moves only to look through them, so that they allocate nothing.
+    // Every copy of a game gets a list of its own.
+    private MoveList scratchMoves = new MoveList();
+    private BoardView boardView;
+
+    private static final int INITIAL_UNDO_CAPACITY = 64;
+    private static final long UNDO_MOVE_MASK = 0x1FFFF;
+    private static final int UNDO_CAPTURED_SHIFT = 17;
+    private static final int UNDO_FROM_MOVED_SHIFT = 21;
+    private static final int UNDO_TO_MOVED_SHIFT = 22;
+    private static final int UNDO_EN_PASSANT_SHIFT = 23;
+    private static final int UNDO_CLOCK_SHIFT = 32;
+
+    /** The value of the en passant square when no en passant capture is possible. */
+    private static final int NO_SQUARE = -1;
+    /** The number of half-moves without a capture or a pawn move after which the game is drawn. */
+    public static final int FIFTY_MOVE_HALF_MOVES = 100;
+    /** The bitboard of the light squares, B1, D1, ..., H8. */
+    private static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL;
+
+    // Pieces are immutable, so every square holding a given kind of piece shares one instance.
+    private static final Piece[] PIECES = {
+            new Pawn(PieceColor.WHITE), new Knight(PieceColor.WHITE), new Bishop(PieceColor.WHITE),
+            new Rook(PieceColor.WHITE), new Queen(PieceColor.WHITE), new King(PieceColor.WHITE),
+            new Pawn(PieceColor.BLACK), new Knight(PieceColor.BLACK), new Bishop(PieceColor.BLACK),
+            new Rook(PieceColor.BLACK), new Queen(PieceColor.BLACK), new King(PieceColor.BLACK)
+    };
+    // The squares involved in castling, given for White. Black's squares are 56 higher.
+    private static final int KING_HOME = 4;
+    private static final int KINGSIDE_ROOK_HOME = 7;
+    private static final int QUEENSIDE_ROOK_HOME = 0;
+    private static final long KINGSIDE_PATH = Bitboards.mask(5) | Bitboards.mask(6);
+    private static final long QUEENSIDE_PATH = Bitboards.mask(1) | Bitboards.mask(2) | Bitboards.mask(3);
+    private static final int BLACK_HOME_OFFSET = 56;
+    // The castling rights, as bits of the mask hashed into the position key.
+    private static final int WHITE_KINGSIDE = 1;
+    private static final int WHITE_QUEENSIDE = 2;
+    private static final int BLACK_KINGSIDE = 4;
+    private static final int BLACK_QUEENSIDE = 8;
+    /** The promotion pieces, in the order the generator emits them. */
+    private static final int[] PROMOTIONS = {Bitboards.QUEEN, Bitboards.ROOK, Bitboards.BISHOP, Bitboards.KNIGHT};
     
     /** The number of rows of the chess board. */
     public static final int BOARD_RANKS = 8;
@@ -47,6 +133,7 @@ public class Chess implements Cloneable{
         moveCount = 0;
         try{
             this.fillBoardFromString("RNBQKBNRPPPPPPPP                                pppppppprnbqkbnr");
+            this.zobristKey = this.computeZobristKey();
         }
         catch (IllegalArrangementException e){
             System.out.println("Invalid arrangement");
@@ -58,8 +145,19 @@ public class Chess implements Cloneable{
      * @param chess The Chess object to copy.
      */
     public Chess(Chess chess){
-        this.board = chess.getBoard();
+        this.bitboards = chess.bitboards.clone();
+        this.occupancy = chess.occupancy.clone();
+        this.movedPieces = chess.movedPieces;
         this.moveCount = chess.getMoveCount();
+        this.halfMoveClock = chess.halfMoveClock;
+        this.enPassantSquare = chess.enPassantSquare;
+        this.zobristKey = chess.zobristKey;
+        this.middlegameScore = chess.middlegameScore;
+        this.endgameScore = chess.endgameScore;
+        this.phase = chess.phase;
+        this.undoStack = chess.undoStack.clone();
+        this.keyStack = chess.keyStack.clone();
+        this.undoCount = chess.undoCount;
     }
 
 
@@ -72,6 +170,7 @@ public class Chess implements Cloneable{
     public Chess(String arrangement, PieceColor turn) throws IllegalArrangementException{
         this.fillBoardFromString(arrangement);
         this.moveCount = turn==PieceColor.WHITE ? 0 : 1;
+        this.zobristKey = this.computeZobristKey();
     }
 
     /**
@@ -81,67 +180,18 @@ public class Chess implements Cloneable{
     private void fillBoardFromString(String arrangements) throws IllegalArrangementException {
         this.verifyArrangement(arrangements);
 
-        board = new Piece[BOARD_RANKS][BOARD_FILES];
-        for (int i = 0; i < BOARD_RANKS; i++) {
-            for (int j = 0; j < BOARD_FILES; j++) {
-                char piece = arrangements.charAt(i * BOARD_FILES + j);
-                Position p = Position.generateFromRankAndFile(i, j);
-                if (p==null) throw new IllegalArrangementException("Invalid position");
-                switch (piece) {
-                    case 'K':
-                        this.setPieceAt(p, new King(PieceColor.WHITE));
-                        break;
-                    case 'k':
-                        this.setPieceAt(p, new King(PieceColor.BLACK));
-                        break;
-                    case 'Q':
-                        this.setPieceAt(p, new Queen(PieceColor.WHITE));
-                        break;
-                    case 'q':
-                        this.setPieceAt(p, new Queen(PieceColor.BLACK));
-                        break;
-                    case 'R':
-                        this.setPieceAt(p, new Rook(PieceColor.WHITE));
-                        break;
-                    case 'r':
-                        this.setPieceAt(p, new Rook(PieceColor.BLACK));
-                        break;
-                    case 'S':
-                        this.setPieceAt(p, new Rook(PieceColor.WHITE, true));
-                        break;
-                    case 's':
-                        this.setPieceAt(p, new Rook(PieceColor.BLACK, true));
-                        break;
-                    case 'B':
-                        this.setPieceAt(p, new Bishop(PieceColor.WHITE));
-                        break;
-                    case 'b':
-                        this.setPieceAt(p, new Bishop(PieceColor.BLACK));
-                        break;
-                    case 'N':
-                        this.setPieceAt(p, new Knight(PieceColor.WHITE));
-                        break;
-                    case 'n':
-                        this.setPieceAt(p, new Knight(PieceColor.BLACK));
-                        break;
-                    case 'P':
-                        Pawn pawnW = new Pawn(PieceColor.WHITE);
-                        this.setPieceAt(p, pawnW);
-                        break;
-                    case 'p':
-                        Pawn pawnB = new Pawn(PieceColor.BLACK);
-                        this.setPieceAt(p, pawnB);
-                        break;
-                    case 'L':
-                        this.setPieceAt(p, new King(PieceColor.WHITE, true));
-                        break;
-                    case 'l':
-                        this.setPieceAt(p, new King(PieceColor.BLACK, true));
-                        break;
-                    default:
-                        board[i][j] = null;
-                        break;
-                }
+        bitboards = new long[Bitboards.PIECE_INDICES];
+        occupancy = new long[2];
+        movedPieces = 0L;
+        enPassantSquare = NO_SQUARE;
+        middlegameScore = endgameScore = phase = 0;
+        for (int square = 0; square < Bitboards.SQUARES; square++) {
+            char piece = arrangements.charAt(square);
+            int pieceIndex = Bitboards.pieceIndexOf(piece);
+            if (pieceIndex != Bitboards.NO_PIECE) {
+                this.putPiece(square, pieceIndex);
+                if (piece == 'L' || piece == 'l' || piece == 'S' || piece == 's')
+                    movedPieces |= Bitboards.mask(square);
             }
         }
     }
@@ -182,11 +232,47 @@ public class Chess implements Cloneable{
         return count;
     }
     /**
-     * Gets the current state of the chess board.
+     * Gets a copy of the current state of the chess board.
+     * Code that only reads the squares should use getBoardView, which copies nothing.
      * @return The 2D array representing the chess board.
      */
     public Piece[][] getBoard() {
-        return ArrayTools.deepCopy(board);
+        Piece[][] board = new Piece[BOARD_RANKS][BOARD_FILES];
+        for (int square = 0; square < Bitboards.SQUARES; square++)
+            board[Bitboards.rankOf(square)][Bitboards.fileOf(square)] = this.pieceAt(square);
+        return board;
+    }
+
+    /**
+     * Gets a read-only view of the chess board, which always shows the current position.
+     * @return The view of the board.
+     */
+    public BoardView getBoardView() {
+        if (boardView == null)
+            boardView = new View();
+        return boardView;
+    }
+
+    /**
+     * The View class is the board view of a game, reading the bitboards of the game directly.
+     */
+    private final class View implements BoardView {
+        /**
+         * Returns the piece standing on the given square.
+         * @param square The square index.
+         * @return The piece on the square, or null if the square is empty.
+         */
+        public Piece pieceAt(int square) {
+            return Chess.this.pieceAt(square);
+        }
+
+        /**
+         * Returns the occupied squares as a bitboard.
+         * @return The bitboard of the occupied squares.
+         */
+        public long occupied() {
+            return occupancy[0] | occupancy[1];
+        }
     }
 
     /**
@@ -198,11 +284,68 @@ public class Chess implements Cloneable{
     }
 
     /**
-     * Checks if the game is over.
+     * Checks if the game is over, by checkmate, stalemate or one of the draw rules.
      * @return true if the game is over, false otherwise.
      */
     public boolean isGameOver() {
-        return false;
+        return this.getGameStatus() != GameStatus.IN_PROGRESS;
+    }
+
+    /**
+     * Gets the status of the game in the current position.
+     * Checkmate and stalemate take precedence over the draw rules, so a move that mates
+     * on the hundredth half-move of the fifty-move rule still wins.
+     * @return The status of the game.
+     */
+    public GameStatus getGameStatus() {
+        if (!this.hasLegalMove())
+            return this.isKingUnderAttack(this.getTurn()) ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        if (halfMoveClock >= FIFTY_MOVE_HALF_MOVES)
+            return GameStatus.FIFTY_MOVE_RULE;
+        if (this.getRepetitionCount() >= 3)
+            return GameStatus.THREEFOLD_REPETITION;
+        if (this.isInsufficientMaterial())
+            return GameStatus.INSUFFICIENT_MATERIAL;
+        return GameStatus.IN_PROGRESS;
+    }
+
+    /**
+     * Counts how many times the current position has occurred in the game, including now.
+     * Positions are compared by their Zobrist keys, which cover the side to move, the castling rights
+     * and the en passant file. Only the positions since the last capture or pawn move are looked at,
+     * every second one, as no earlier position can repeat the current one.
+     * @return The number of occurrences of the current position, at least 1.
+     */
+    public int getRepetitionCount() {
+        int count = 1;
+        int oldest = Math.max(0, undoCount - halfMoveClock);
+        for (int i = undoCount - 2; i >= oldest; i -= 2)
+            if (keyStack[i] == zobristKey)
+                count++;
+        return count;
+    }
+
+    /**
+     * Checks whether neither side has the material left to checkmate: only kings remain,
+     * with at most one knight or bishop, or with bishops that all stand on squares of one color.
+     * @return true if the material is insufficient, false otherwise.
+     */
+    public boolean isInsufficientMaterial() {
+        long heavy = 0L;
+        for (PieceColor color : PieceColor.values())
+            heavy |= bitboards[Bitboards.pieceIndex(color, Bitboards.PAWN)]
+                    | bitboards[Bitboards.pieceIndex(color, Bitboards.ROOK)]
+                    | bitboards[Bitboards.pieceIndex(color, Bitboards.QUEEN)];
+        if (heavy != 0)
+            return false;
+
+        long knights = bitboards[Bitboards.pieceIndex(PieceColor.WHITE, Bitboards.KNIGHT)]
+                | bitboards[Bitboards.pieceIndex(PieceColor.BLACK, Bitboards.KNIGHT)];
+        long bishops = bitboards[Bitboards.pieceIndex(PieceColor.WHITE, Bitboards.BISHOP)]
+                | bitboards[Bitboards.pieceIndex(PieceColor.BLACK, Bitboards.BISHOP)];
+        if (Long.bitCount(knights | bishops) <= 1)
+            return true;
+        return knights == 0 && ((bishops & LIGHT_SQUARES) == 0 || (bishops & ~LIGHT_SQUARES) == 0);
     }
 
     /**
@@ -213,13 +356,21 @@ public class Chess implements Cloneable{
         return moveCount;
     }
 
+    /**
+     * Gets the number of moves made since the last capture or pawn move.
+     * @return The half-move clock.
+     */
+    public int getHalfMoveClock(){
+        return halfMoveClock;
+    }
+
     /**
      * Checks if the specified position is empty.
      * @param p The position to check.
      * @return true if the position is empty, false otherwise.
      */
     public boolean isEmpty(Position p) {
-        return this.getPieceAt(p) == null;
+        return ((occupancy[0] | occupancy[1]) & Bitboards.mask(Bitboards.square(p))) == 0;
     }
 
     /**
@@ -228,17 +379,104 @@ public class Chess implements Cloneable{
      * @return The character representing the piece at the position.
      */
     public Piece getPieceAt(Position p) {
-        return board[p.getRank()][p.getFile()];
+        return this.pieceAt(Bitboards.square(p));
     }
 
     /**
-     * Sets the specified piece at the given position on the chess board.
-     *
-     * @param p     the position where the piece should be set
-     * @param piece the character representation of the piece to be set
+     * Checks whether the piece at the specified position has moved, which for kings and rooks
+     * decides whether they may still castle.
+     * @param p The position to check.
+     * @return true if a piece that has moved stands at the position, false otherwise.
      */
-    private void setPieceAt(Position p, Piece piece) {
-        board[p.getRank()][p.getFile()] = piece;
+    public boolean hasMoved(Position p) {
+        return (movedPieces & Bitboards.mask(Bitboards.square(p))) != 0;
+    }
+
+    /**
+     * Gets the color of the piece at the specified position without materializing the piece.
+     * @param p The position to check.
+     * @return The color of the piece at the position, or null if the position is empty.
+     */
+    public PieceColor getPieceColorAt(Position p) {
+        long mask = Bitboards.mask(Bitboards.square(p));
+        if ((occupancy[PieceColor.WHITE.ordinal()] & mask) != 0)
+            return PieceColor.WHITE;
+        if ((occupancy[PieceColor.BLACK.ordinal()] & mask) != 0)
+            return PieceColor.BLACK;
+        return null;
+    }
+
+    /**
+     * Gets the bitboard of the pieces with the given bitboard index.
+     * @param pieceIndex The bitboard index (see Bitboards.pieceIndex).
+     * @return The bitboard of the squares occupied by such pieces.
+     */
+    public long getBitboard(int pieceIndex) {
+        return bitboards[pieceIndex];
+    }
+
+    /**
+     * Gets the bitboard index of the piece standing on the given square.
+     * @param square The square index.
+     * @return The bitboard index of the piece, or Bitboards.NO_PIECE if the square is empty.
+     */
+    public int getPieceIndexAt(int square) {
+        return this.pieceIndexAt(square);
+    }
+
+    /**
+     * Gets the bitboard index of the piece standing on the given square.
+     * @param square The square index.
+     * @return The bitboard index of the piece, or Bitboards.NO_PIECE if the square is empty.
+     */
+    private int pieceIndexAt(int square) {
+        long mask = Bitboards.mask(square);
+        if (((occupancy[0] | occupancy[1]) & mask) == 0)
+            return Bitboards.NO_PIECE;
+        for (int i = 0; i < Bitboards.PIECE_INDICES; i++)
+            if ((bitboards[i] & mask) != 0)
+                return i;
+        return Bitboards.NO_PIECE;
+    }
+
+    /**
+     * Gets the shared piece object standing on the given square.
+     * @param square The square index.
+     * @return The piece on the square, or null if the square is empty.
+     */
+    private Piece pieceAt(int square) {
+        int pieceIndex = this.pieceIndexAt(square);
+        return pieceIndex == Bitboards.NO_PIECE ? null : PIECES[pieceIndex];
+    }
+
+    /**
+     * Places a piece on the given empty square.
+     * @param square The square index.
+     * @param pieceIndex The bitboard index of the piece.
+     */
+    private void putPiece(int square, int pieceIndex) {
+        long mask = Bitboards.mask(square);
+        bitboards[pieceIndex] |= mask;
+        occupancy[pieceIndex / Bitboards.PIECE_TYPES] |= mask;
+        zobristKey ^= Zobrist.pieceKey(pieceIndex, square);
+        middlegameScore += PieceSquareTables.middlegameValue(pieceIndex, square);
+        endgameScore += PieceSquareTables.endgameValue(pieceIndex, square);
+        phase += PieceSquareTables.phaseWeight(pieceIndex);
+    }
+
+    /**
+     * Removes a piece from the given square.
+     * @param square The square index.
+     * @param pieceIndex The bitboard index of the piece standing on the square.
+     */
+    private void removePiece(int square, int pieceIndex) {
+        long mask = ~Bitboards.mask(square);
+        bitboards[pieceIndex] &= mask;
+        occupancy[pieceIndex / Bitboards.PIECE_TYPES] &= mask;
+        zobristKey ^= Zobrist.pieceKey(pieceIndex, square);
+        middlegameScore -= PieceSquareTables.middlegameValue(pieceIndex, square);
+        endgameScore -= PieceSquareTables.endgameValue(pieceIndex, square);
+        phase -= PieceSquareTables.phaseWeight(pieceIndex);
     }
 
     /**
@@ -257,48 +495,493 @@ public class Chess implements Cloneable{
 
     /**
      * Performs the specified move on the chess board.
+     * Castling is given as the move of the king, and a pawn reaching the last rank is promoted to a queen.
      * @param move The move to perform.
      * @return true if the move was performed successfully, false otherwise.
+     * @throws KingUnderAttackException If the move would leave the own king in check.
      */
     public boolean performMove(Move move) throws KingUnderAttackException{
-        Position destination = move.getDestination();
-        Position origin = move.getOrigin();
-        if (this.getPieceAt(origin)==null){
+        return this.performMove(Move.encode(move));
+    }
+
+    /**
+     * Performs the specified packed move on the chess board.
+     * Only the origin, destination and promotion of the move are read; castling is given as the move
+     * of the king, and a pawn reaching the last rank without a promotion piece is promoted to a queen.
+     * @param move The packed move to perform (see Move.pack).
+     * @return true if the move was performed successfully, false otherwise.
+     * @throws KingUnderAttackException If the move would leave the own king in check.
+     */
+    public boolean performMove(int move) throws KingUnderAttackException{
+        int from = Move.originOf(move);
+        int to = Move.destinationOf(move);
+        int pieceIndex = this.pieceIndexAt(from);
+        if (pieceIndex == Bitboards.NO_PIECE){
             System.out.println("There is no piece at the origin!!!");
             return false;
         }
-        if (this.getTurn()!=this.getPieceAt(origin).getPieceColor()){
+        if (this.getTurn()!=Bitboards.colorOf(pieceIndex)){
             System.out.println("It is not your turn!!!");
             return false;
         }
 
-        // A backup is created first. If the king is exposed to a threat after a potential move,
-        // the backup is restored. Hence, the following copy needs to be a deep copy.
-        Piece[][] boardCopy = this.getBoard();
+        // Castling, en passant and promotion are resolved by matching the
+        // origin, destination and promotion against the generated moves.
+        int promotion = Move.promotionOf(move) == Move.NO_PROMOTION ? Bitboards.QUEEN : Move.promotionOf(move);
+        MoveList candidates = scratchMoves;
+        this.generatePseudoLegalMoves(candidates);
+        for (int i = 0; i < candidates.size(); i++) {
+            int candidate = candidates.get(i);
+            if (Move.originOf(candidate) != from || Move.destinationOf(candidate) != to)
+                continue;
+            if (Move.promotionOf(candidate) != Move.NO_PROMOTION && Move.promotionOf(candidate) != promotion)
+                continue;
 
-        if (this.reachableFrom(origin).contains(destination)){
-            // TODO: The case for castling is not handled yet.
-            // TODO: The case for en passant is not handled yet.
-            this.setPieceAt(destination, this.getPieceAt(origin));
-            this.setPieceAt(origin, null);
+            // The move is made first. If the king is exposed to a threat after it,
+            // the move is taken back from the undo stack.
+            PieceColor moverColor = this.getTurn();
+            this.makeMove(candidate);
 
-            if (this.getPieceAt(destination) instanceof Rook){
-                ((Rook) this.getPieceAt(destination)).move();
-            }
-            else if (this.getPieceAt(destination) instanceof King){
-                ((King) this.getPieceAt(destination)).move();
-            }
-
-            if (isKingUnderAttack(this.getTurn())) {
-                this.board = boardCopy;
+            if (isKingUnderAttack(moverColor)) {
+                this.unmakeMove();
                 throw new KingUnderAttackException();
             }
-            this.moveCount++;
             return true;
         }
-        else{
-            return false;
+        return false;
+    }
+
+    /**
+     * Makes the given packed move without checking whether it is legal.
+     * The information needed to take the move back is pushed onto the undo stack,
+     * so that it can be reverted in constant time with unmakeMove.
+     * @param move The packed move to make (see Move.pack).
+     */
+    public void makeMove(int move) {
+        int from = Move.originOf(move);
+        int to = Move.destinationOf(move);
+        int flag = Move.flagOf(move);
+        int pieceIndex = this.pieceIndexAt(from);
+        int captureSquare = flag == Move.EN_PASSANT ? enPassantVictimSquare(from, to) : to;
+        int capturedIndex = this.pieceIndexAt(captureSquare);
+
+        this.pushUndoRecord((move & UNDO_MOVE_MASK)
+                | (long) (capturedIndex + 1) << UNDO_CAPTURED_SHIFT
+                | ((movedPieces >>> from) & 1L) << UNDO_FROM_MOVED_SHIFT
+                | ((movedPieces >>> to) & 1L) << UNDO_TO_MOVED_SHIFT
+                | (long) (enPassantSquare + 1) << UNDO_EN_PASSANT_SHIFT
+                | (long) halfMoveClock << UNDO_CLOCK_SHIFT);
+        zobristKey ^= Zobrist.castlingKey(this.castlingRights()) ^ this.enPassantKey();
+
+        if (capturedIndex != Bitboards.NO_PIECE)
+            this.removePiece(captureSquare, capturedIndex);
+        this.removePiece(from, pieceIndex);
+        int promotion = Move.promotionOf(move);
+        int placedIndex = promotion == Move.NO_PROMOTION
+                ? pieceIndex
+                : Bitboards.pieceIndex(Bitboards.colorOf(pieceIndex), promotion);
+        this.putPiece(to, placedIndex);
+
+        int type = Bitboards.typeOf(placedIndex);
+        movedPieces &= ~(Bitboards.mask(from) | Bitboards.mask(to));
+        if (type == Bitboards.ROOK || type == Bitboards.KING)
+            movedPieces |= Bitboards.mask(to);
+
+        if (flag == Move.CASTLING) {
+            int rookFrom = castlingRookOrigin(to);
+            int rookTo = castlingRookDestination(to);
+            int rookIndex = Bitboards.pieceIndex(Bitboards.colorOf(pieceIndex), Bitboards.ROOK);
+            this.removePiece(rookFrom, rookIndex);
+            this.putPiece(rookTo, rookIndex);
+            movedPieces = (movedPieces & ~Bitboards.mask(rookFrom)) | Bitboards.mask(rookTo);
+        }
+
+        enPassantSquare = flag == Move.DOUBLE_PUSH ? (from + to) >>> 1 : NO_SQUARE;
+        if (Bitboards.typeOf(pieceIndex) == Bitboards.PAWN || capturedIndex != Bitboards.NO_PIECE)
+            halfMoveClock = 0;
+        else
+            halfMoveClock++;
+        moveCount++;
+        zobristKey ^= Zobrist.castlingKey(this.castlingRights()) ^ this.enPassantKey() ^ Zobrist.blackToMoveKey();
+    }
+
+    /**
+     * Makes the given move without checking whether it is legal.
+     * @param move The move to make.
+     */
+    public void makeMove(Move move) {
+        this.makeMove(Move.encode(move));
+    }
+
+    /**
+     * Takes back the last move made with makeMove or performMove.
+     * @throws IllegalStateException If there is no move to take back.
+     */
+    public void unmakeMove() {
+        if (undoCount == 0)
+            throw new IllegalStateException("There is no move to take back");
+
+        long record = undoStack[--undoCount];
+        int move = (int) (record & UNDO_MOVE_MASK);
+        int from = Move.originOf(move);
+        int to = Move.destinationOf(move);
+        int flag = Move.flagOf(move);
+        int placedIndex = this.pieceIndexAt(to);
+        int pieceIndex = Move.promotionOf(move) == Move.NO_PROMOTION
+                ? placedIndex
+                : Bitboards.pieceIndex(Bitboards.colorOf(placedIndex), Bitboards.PAWN);
+        int capturedIndex = (int) ((record >>> UNDO_CAPTURED_SHIFT) & 0xF) - 1;
+
+        this.removePiece(to, placedIndex);
+        this.putPiece(from, pieceIndex);
+        if (capturedIndex != Bitboards.NO_PIECE)
+            this.putPiece(flag == Move.EN_PASSANT ? enPassantVictimSquare(from, to) : to, capturedIndex);
+
+        if (flag == Move.CASTLING) {
+            int rookFrom = castlingRookOrigin(to);
+            int rookTo = castlingRookDestination(to);
+            int rookIndex = Bitboards.pieceIndex(Bitboards.colorOf(pieceIndex), Bitboards.ROOK);
+            this.removePiece(rookTo, rookIndex);
+            this.putPiece(rookFrom, rookIndex);
+            movedPieces &= ~Bitboards.mask(rookTo);
+        }
+
+        movedPieces &= ~(Bitboards.mask(from) | Bitboards.mask(to));
+        movedPieces |= ((record >>> UNDO_FROM_MOVED_SHIFT) & 1L) << from
+                | ((record >>> UNDO_TO_MOVED_SHIFT) & 1L) << to;
+        enPassantSquare = (int) ((record >>> UNDO_EN_PASSANT_SHIFT) & 0x7F) - 1;
+        halfMoveClock = (int) ((record >>> UNDO_CLOCK_SHIFT) & 0xFFFF);
+        moveCount--;
+        zobristKey = keyStack[undoCount];
+    }
+
+    /**
+     * Fills the given list with every legal move of the side to move.
+     * The list is cleared first. Castling, en passant and promotions are included;
+     * moves that would leave the own king in check are not.
+     * @param moves The caller-owned list to fill.
+     * @return The number of legal moves.
+     */
+    public int generateLegalMoves(MoveList moves) {
+        this.generatePseudoLegalMoves(moves);
+        return this.removeIllegalMoves(moves, false);
+    }
+
+    /**
+     * Fills the given list with the legal captures and promotions of the side to move.
+     * The list is cleared first. This is the move set searched to resolve tactics at the leaves of a search.
+     * @param moves The caller-owned list to fill.
+     * @return The number of legal captures and promotions.
+     */
+    public int generateLegalCaptures(MoveList moves) {
+        this.generatePseudoLegalMoves(moves);
+        return this.removeIllegalMoves(moves, true);
+    }
+
+    /**
+     * Removes the moves that would leave the own king in check, compacting the list in place.
+     * @param moves The list of pseudo-legal moves.
+     * @param capturesOnly Whether to also remove every move that is neither a capture nor a promotion.
+     * @return The number of remaining moves.
+     */
+    private int removeIllegalMoves(MoveList moves, boolean capturesOnly) {
+        PieceColor moverColor = this.getTurn();
+        int legalCount = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (capturesOnly && !this.isCapture(move) && Move.promotionOf(move) == Move.NO_PROMOTION)
+                continue;
+            this.makeMove(move);
+            if (!this.isKingUnderAttack(moverColor))
+                moves.set(legalCount++, move);
+            this.unmakeMove();
+        }
+        moves.truncate(legalCount);
+        return legalCount;
+    }
+
+    /**
+     * Checks whether the side to move has at least one legal move, stopping at the first one found.
+     * @return true if there is a legal move, false otherwise.
+     */
+    private boolean hasLegalMove() {
+        MoveList moves = scratchMoves;
+        this.generatePseudoLegalMoves(moves);
+        PieceColor moverColor = this.getTurn();
+        for (int i = 0; i < moves.size(); i++) {
+            this.makeMove(moves.get(i));
+            boolean legal = !this.isKingUnderAttack(moverColor);
+            this.unmakeMove();
+            if (legal)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the given packed move captures a piece in the current position.
+     * @param move The packed move.
+     * @return true if the move is a capture, including en passant, false otherwise.
+     */
+    public boolean isCapture(int move) {
+        return Move.flagOf(move) == Move.EN_PASSANT
+                || ((occupancy[0] | occupancy[1]) & Bitboards.mask(Move.destinationOf(move))) != 0;
+    }
+
+    /**
+     * Fills the given list with every move of the side to move that obeys the movement rules
+     * of the pieces, without checking whether the own king is left in check.
+     * Castling moves are only generated when the king does not pass through an attacked square.
+     * @param moves The caller-owned list to fill. It is cleared first.
+     */
+    private void generatePseudoLegalMoves(MoveList moves) {
+        moves.clear();
+        PieceColor color = this.getTurn();
+        int offset = color.ordinal() * Bitboards.PIECE_TYPES;
+        long own = occupancy[color.ordinal()];
+        long enemy = occupancy[opponentOf(color).ordinal()];
+        long occupied = own | enemy;
+
+        this.generatePawnMoves(moves, color, bitboards[offset + Bitboards.PAWN], enemy, occupied);
+        for (long pieces = bitboards[offset + Bitboards.KNIGHT]; pieces != 0; pieces &= pieces - 1) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            addMoves(moves, from, Bitboards.knightAttacks(from) & ~own);
+        }
+        for (long pieces = bitboards[offset + Bitboards.BISHOP]; pieces != 0; pieces &= pieces - 1) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            addMoves(moves, from, Bitboards.bishopAttacks(from, occupied) & ~own);
+        }
+        for (long pieces = bitboards[offset + Bitboards.ROOK]; pieces != 0; pieces &= pieces - 1) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            addMoves(moves, from, Bitboards.rookAttacks(from, occupied) & ~own);
+        }
+        for (long pieces = bitboards[offset + Bitboards.QUEEN]; pieces != 0; pieces &= pieces - 1) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            addMoves(moves, from, Bitboards.queenAttacks(from, occupied) & ~own);
+        }
+        for (long pieces = bitboards[offset + Bitboards.KING]; pieces != 0; pieces &= pieces - 1) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            addMoves(moves, from, Bitboards.kingAttacks(from) & ~own);
         }
+        this.generateCastlingMoves(moves, color, occupied);
+    }
+
+    /**
+     * Adds the pushes, captures, promotions and en passant captures of the given pawns.
+     * @param moves The list to add the moves to.
+     * @param color The color of the pawns.
+     * @param pawns The bitboard of the pawns.
+     * @param enemy The bitboard of the opponent's pieces.
+     * @param occupied The bitboard of all occupied squares.
+     */
+    private void generatePawnMoves(MoveList moves, PieceColor color, long pawns, long enemy, long occupied) {
+        int forward = color == PieceColor.WHITE ? BOARD_FILES : -BOARD_FILES;
+        int startRank = color == PieceColor.WHITE ? 1 : BOARD_RANKS - 2;
+        int promotionRank = color == PieceColor.WHITE ? BOARD_RANKS - 1 : 0;
+
+        for (; pawns != 0; pawns &= pawns - 1) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            // Arrangements may place pawns on the last rank, where they cannot move any more.
+            if (Bitboards.rankOf(from) == promotionRank)
+                continue;
+            int to = from + forward;
+            boolean promotes = Bitboards.rankOf(to) == promotionRank;
+            if ((occupied & Bitboards.mask(to)) == 0) {
+                addPawnMove(moves, from, to, promotes);
+                int doubleTo = to + forward;
+                if (Bitboards.rankOf(from) == startRank && (occupied & Bitboards.mask(doubleTo)) == 0)
+                    moves.add(Move.pack(from, doubleTo, Move.DOUBLE_PUSH, Move.NO_PROMOTION));
+            }
+
+            long attacks = Bitboards.pawnAttacks(color, from);
+            for (long targets = attacks & enemy; targets != 0; targets &= targets - 1)
+                addPawnMove(moves, from, Long.numberOfTrailingZeros(targets), promotes);
+            if (enPassantSquare != NO_SQUARE && (attacks & Bitboards.mask(enPassantSquare)) != 0)
+                moves.add(Move.pack(from, enPassantSquare, Move.EN_PASSANT, Move.NO_PROMOTION));
+        }
+    }
+
+    /**
+     * Adds a pawn move, expanded into one move per promotion piece if the pawn promotes.
+     * @param moves The list to add the moves to.
+     * @param from The origin square.
+     * @param to The destination square.
+     * @param promotes Whether the destination lies on the last rank.
+     */
+    private static void addPawnMove(MoveList moves, int from, int to, boolean promotes) {
+        if (!promotes) {
+            moves.add(Move.pack(from, to));
+            return;
+        }
+        for (int promotion : PROMOTIONS)
+            moves.add(Move.pack(from, to, Move.NORMAL, promotion));
+    }
+
+    /**
+     * Adds the castling moves available to the given color.
+     * Castling requires an unmoved king and rook on their home squares, empty squares between them,
+     * and that the king is not in check and does not pass through or land on an attacked square.
+     * @param moves The list to add the moves to.
+     * @param color The color to castle.
+     * @param occupied The bitboard of all occupied squares.
+     */
+    private void generateCastlingMoves(MoveList moves, PieceColor color, long occupied) {
+        int home = color == PieceColor.WHITE ? 0 : BLACK_HOME_OFFSET;
+        int king = home + KING_HOME;
+        if (!this.isUnmoved(color, Bitboards.KING, king))
+            return;
+        PieceColor opponent = opponentOf(color);
+        if (this.isSquareAttacked(king, opponent))
+            return;
+
+        if (this.isUnmoved(color, Bitboards.ROOK, home + KINGSIDE_ROOK_HOME)
+                && (occupied & (KINGSIDE_PATH << home)) == 0
+                && !this.isSquareAttacked(king + 1, opponent)
+                && !this.isSquareAttacked(king + 2, opponent))
+            moves.add(Move.pack(king, king + 2, Move.CASTLING, Move.NO_PROMOTION));
+        if (this.isUnmoved(color, Bitboards.ROOK, home + QUEENSIDE_ROOK_HOME)
+                && (occupied & (QUEENSIDE_PATH << home)) == 0
+                && !this.isSquareAttacked(king - 1, opponent)
+                && !this.isSquareAttacked(king - 2, opponent))
+            moves.add(Move.pack(king, king - 2, Move.CASTLING, Move.NO_PROMOTION));
+    }
+
+    /**
+     * Checks whether a piece of the given color and type stands on the square and has not moved yet.
+     * @param color The color of the piece.
+     * @param type The type index of the piece.
+     * @param square The square index.
+     * @return true if such an unmoved piece stands on the square, false otherwise.
+     */
+    private boolean isUnmoved(PieceColor color, int type, int square) {
+        long mask = Bitboards.mask(square);
+        return (bitboards[Bitboards.pieceIndex(color, type)] & mask) != 0 && (movedPieces & mask) == 0;
+    }
+
+    /**
+     * Adds one ordinary move from the origin to every square of the given bitboard.
+     * @param moves The list to add the moves to.
+     * @param from The origin square.
+     * @param targets The bitboard of destination squares.
+     */
+    private static void addMoves(MoveList moves, int from, long targets) {
+        for (; targets != 0; targets &= targets - 1)
+            moves.add(Move.pack(from, Long.numberOfTrailingZeros(targets)));
+    }
+
+    /**
+     * Gets the square of the pawn captured by an en passant move.
+     * @param from The origin square of the capturing pawn.
+     * @param to The destination square of the capturing pawn.
+     * @return The square of the captured pawn, beside the origin on the destination's file.
+     */
+    private static int enPassantVictimSquare(int from, int to) {
+        return Bitboards.square(Bitboards.rankOf(from), Bitboards.fileOf(to));
+    }
+
+    /**
+     * Gets the home square of the rook taking part in a castling move.
+     * @param kingTo The destination square of the king.
+     * @return The square the rook starts on.
+     */
+    private static int castlingRookOrigin(int kingTo) {
+        return Bitboards.fileOf(kingTo) > KING_HOME ? kingTo + 1 : kingTo - 2;
+    }
+
+    /**
+     * Gets the destination square of the rook taking part in a castling move.
+     * @param kingTo The destination square of the king.
+     * @return The square the rook ends on, next to the king on the inner side.
+     */
+    private static int castlingRookDestination(int kingTo) {
+        return Bitboards.fileOf(kingTo) > KING_HOME ? kingTo - 1 : kingTo + 1;
+    }
+
+    /**
+     * Pushes an undo record onto the undo stack, growing the stack when it is full.
+     * @param record The packed undo record.
+     */
+    private void pushUndoRecord(long record) {
+        if (undoCount == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoStack.length * 2);
+            keyStack = Arrays.copyOf(keyStack, keyStack.length * 2);
+        }
+        keyStack[undoCount] = zobristKey;
+        undoStack[undoCount++] = record;
+    }
+
+    /**
+     * Gets the 64-bit Zobrist key of the position. The key covers the pieces, the side to move,
+     * the castling rights and the file of a possible en passant capture, and is updated incrementally
+     * by every move. Equal positions have equal keys; different positions collide only by chance.
+     * @return The Zobrist key of the position.
+     */
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * Evaluates the position statically, by material and piece placement, blending the middlegame
+     * and endgame scores by the game phase. The scores are updated incrementally by every move,
+     * so this takes constant time.
+     * @return The score in centipawns from the side to move's point of view.
+     */
+    public int evaluate() {
+        int middlegamePhase = Math.min(phase, PieceSquareTables.MAX_PHASE);
+        int score = (middlegameScore * middlegamePhase
+                + endgameScore * (PieceSquareTables.MAX_PHASE - middlegamePhase)) / PieceSquareTables.MAX_PHASE;
+        return this.getTurn() == PieceColor.WHITE ? score : -score;
+    }
+
+    /**
+     * Computes the Zobrist key of the position from scratch.
+     * @return The Zobrist key of the position.
+     */
+    private long computeZobristKey() {
+        long key = 0L;
+        for (int pieceIndex = 0; pieceIndex < Bitboards.PIECE_INDICES; pieceIndex++)
+            for (long pieces = bitboards[pieceIndex]; pieces != 0; pieces &= pieces - 1)
+                key ^= Zobrist.pieceKey(pieceIndex, Long.numberOfTrailingZeros(pieces));
+        key ^= Zobrist.castlingKey(this.castlingRights()) ^ this.enPassantKey();
+        if (this.getTurn() == PieceColor.BLACK)
+            key ^= Zobrist.blackToMoveKey();
+        return key;
+    }
+
+    /**
+     * Gets the castling rights of both sides, derived from the unmoved kings and rooks on their home squares.
+     * @return The castling rights as a 4-bit mask.
+     */
+    private int castlingRights() {
+        int rights = 0;
+        if (this.isUnmoved(PieceColor.WHITE, Bitboards.KING, KING_HOME)) {
+            if (this.isUnmoved(PieceColor.WHITE, Bitboards.ROOK, KINGSIDE_ROOK_HOME))
+                rights |= WHITE_KINGSIDE;
+            if (this.isUnmoved(PieceColor.WHITE, Bitboards.ROOK, QUEENSIDE_ROOK_HOME))
+                rights |= WHITE_QUEENSIDE;
+        }
+        if (this.isUnmoved(PieceColor.BLACK, Bitboards.KING, BLACK_HOME_OFFSET + KING_HOME)) {
+            if (this.isUnmoved(PieceColor.BLACK, Bitboards.ROOK, BLACK_HOME_OFFSET + KINGSIDE_ROOK_HOME))
+                rights |= BLACK_KINGSIDE;
+            if (this.isUnmoved(PieceColor.BLACK, Bitboards.ROOK, BLACK_HOME_OFFSET + QUEENSIDE_ROOK_HOME))
+                rights |= BLACK_QUEENSIDE;
+        }
+        return rights;
+    }
+
+    /**
+     * Gets the key of the en passant file, if the side to move can actually capture en passant.
+     * A double pawn push without an enemy pawn next to it does not change the position key.
+     * @return The en passant key, or 0 if no en passant capture is possible.
+     */
+    private long enPassantKey() {
+        if (enPassantSquare == NO_SQUARE)
+            return 0L;
+        PieceColor color = this.getTurn();
+        long pawns = bitboards[Bitboards.pieceIndex(color, Bitboards.PAWN)];
+        if ((Bitboards.pawnAttacks(opponentOf(color), enPassantSquare) & pawns) == 0)
+            return 0L;
+        return Zobrist.enPassantKey(Bitboards.fileOf(enPassantSquare));
     }
 
     /**
@@ -307,31 +990,72 @@ public class Chess implements Cloneable{
      * @return True, if the king in question is under attack by the opponent.
      */
     public boolean isKingUnderAttack(PieceColor kingColor) {
-        Position kingPosition = null;
-        PieceColor opponentColor;
-        ArrayList<Position> p;
-
-        //find the king
-        for (int i = 0; i < BOARD_RANKS; i++)
-            for (int j = 0; j < BOARD_FILES; j++)
-                if (board[i][j] != null
-                        && board[i][j].getPieceColor() == kingColor
-                        && board[i][j] instanceof King)
-                    kingPosition = Position.generateFromRankAndFile(i, j);
-
-        //determine the opposite color
-        if (kingColor == PieceColor.WHITE)
-            opponentColor = PieceColor.BLACK;
-        else
-            opponentColor = PieceColor.WHITE;
+        int kingSquare = this.kingSquare(kingColor);
+        if (kingSquare == Bitboards.NO_PIECE)
+            return false;
+        return this.isSquareAttacked(kingSquare, opponentOf(kingColor));
+    }
 
-        p = getAllDestinationsByColor(opponentColor);
+    /**
+     * Determines whether the given position is attacked by any piece of the given color.
+     * @param p The position in question.
+     * @param attackerColor The color of the attacking pieces.
+     * @return True, if at least one piece of the given color attacks the position.
+     */
+    public boolean isSquareAttacked(Position p, PieceColor attackerColor) {
+        return this.isSquareAttacked(Bitboards.square(p), attackerColor);
+    }
 
-        for (Position pos : p)
-            if (pos.equals(kingPosition))
-                return true;
+    /**
+     * Gets the position of the king of the given color.
+     * @param kingColor The color of the king.
+     * @return The position of the king, or null if there is no such king on the board.
+     */
+    public Position getKingPosition(PieceColor kingColor) {
+        int kingSquare = this.kingSquare(kingColor);
+        if (kingSquare == Bitboards.NO_PIECE)
+            return null;
+        return Position.generateFromSquare(kingSquare);
+    }
 
-        return false;
+    /**
+     * Determines whether the given square is attacked by any piece of the given color.
+     * The attacks are looked up from the square itself: a knight attacks the square if a knight
+     * stands a knight's jump away from it, a bishop if one is visible along a diagonal, and so on.
+     * @param square The square index in question.
+     * @param attackerColor The color of the attacking pieces.
+     * @return True, if at least one piece of the given color attacks the square.
+     */
+    private boolean isSquareAttacked(int square, PieceColor attackerColor) {
+        int offset = attackerColor.ordinal() * Bitboards.PIECE_TYPES;
+        long occupied = occupancy[0] | occupancy[1];
+        long queens = bitboards[offset + Bitboards.QUEEN];
+
+        return (Bitboards.pawnAttacks(opponentOf(attackerColor), square) & bitboards[offset + Bitboards.PAWN]) != 0
+                || (Bitboards.knightAttacks(square) & bitboards[offset + Bitboards.KNIGHT]) != 0
+                || (Bitboards.kingAttacks(square) & bitboards[offset + Bitboards.KING]) != 0
+                || (Bitboards.bishopAttacks(square, occupied) & (bitboards[offset + Bitboards.BISHOP] | queens)) != 0
+                || (Bitboards.rookAttacks(square, occupied) & (bitboards[offset + Bitboards.ROOK] | queens)) != 0;
+    }
+
+    /**
+     * Gets the square of the king of the given color. The king bitboard holds a single bit,
+     * so its location is read off directly instead of searching the board.
+     * @param kingColor The color of the king.
+     * @return The square index of the king, or Bitboards.NO_PIECE if there is no such king.
+     */
+    private int kingSquare(PieceColor kingColor) {
+        long king = bitboards[Bitboards.pieceIndex(kingColor, Bitboards.KING)];
+        return king == 0 ? Bitboards.NO_PIECE : Long.numberOfTrailingZeros(king);
+    }
+
+    /**
+     * Returns the color of the opponent of the given color.
+     * @param color The color in question.
+     * @return The opposite color.
+     */
+    private static PieceColor opponentOf(PieceColor color) {
+        return color == PieceColor.WHITE ? PieceColor.BLACK : PieceColor.WHITE;
     }
 
     /**
@@ -342,22 +1066,17 @@ public class Chess implements Cloneable{
      */
     public ArrayList<Position> getAllDestinationsByColor(PieceColor color) {
         ArrayList<Position> result = new ArrayList<>();
+        long reached = 0L;
 
-        for (int i = 0; i < BOARD_RANKS; i++)
-            for (int j = 0; j < BOARD_FILES; j++)
-                if (board[i][j] != null && board[i][j].getPieceColor() == color) {
-                    ArrayList<Position> current = board[i][j].allDestinations(this,
-                            Position.generateFromRankAndFile(i, j));
-
-
-                    duplicates:
-                    for (int k = 0; k < current.size(); k++) {
-                        for (int l = 0; l < result.size(); l++)
-                            if (current.get(k).equals(result.get(l)))
-                                continue duplicates;
-                        result.addAll(current);
-                    }
-                }
+        for (long pieces = occupancy[color.ordinal()]; pieces != 0; pieces &= pieces - 1) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            for (Position destination : this.pieceAt(square).allDestinations(this, Position.generateFromSquare(square))) {
+                long mask = Bitboards.mask(destination.getSquare());
+                if ((reached & mask) == 0)
+                    result.add(destination);
+                reached |= mask;
+            }
+        }
 
         return result;
     }
@@ -368,8 +1087,21 @@ public class Chess implements Cloneable{
     public Chess clone() {
         try{
             Chess c = (Chess) super.clone();
-            c.board = ArrayTools.deepCopy(this.board);
+            c.bitboards = this.bitboards.clone();
+            c.occupancy = this.occupancy.clone();
+            c.movedPieces = this.movedPieces;
             c.moveCount = this.getMoveCount();
+            c.halfMoveClock = this.halfMoveClock;
+            c.enPassantSquare = this.enPassantSquare;
+            c.zobristKey = this.zobristKey;
+            c.middlegameScore = this.middlegameScore;
+            c.endgameScore = this.endgameScore;
+            c.phase = this.phase;
+            c.undoStack = this.undoStack.clone();
+            c.keyStack = this.keyStack.clone();
+            c.undoCount = this.undoCount;
+            c.boardView = null;
+            c.scratchMoves = new MoveList();
             return c;
         } catch (CloneNotSupportedException e) {
             return null;
@@ -1,76 +1,39 @@
 package am.aua.chess.core;
 
-import java.lang.reflect.Array;
 import java.util.ArrayList;
 
 /**
  * The King class represents a king chess piece.
  */
 public class King extends Piece {
-    private boolean hasMoved;
-
     /**
      * Default constructor for the King class.
-     * Initializes the King with default values and sets hasMoved to false.
+     * Initializes the King with default values.
      */
     public King() {
         super();
-        this.hasMoved = false;
     }
 
     /**
      * Constructor for the King class with a specified color.
-     * Initializes the King with the given color and sets hasMoved to false.
+     * Initializes the King with the given color.
      *
      * @param color The color of the King.
      */
     public King(Chess.PieceColor color) {
         super(color);
-        this.hasMoved = false;
-    }
-
-    /**
-     * Constructor for the King class with a specified color and hasMoved value.
-     * Initializes the King with the given color and hasMoved value.
-     *
-     * @param color    The color of the King.
-     * @param hasMoved The hasMoved value of the King.
-     */
-    public King(Chess.PieceColor color, boolean hasMoved) {
-        super(color);
-        this.hasMoved = hasMoved;
-    }
-
-    /**
-     * Returns the hasMoved value of the King.
-     *
-     * @return The hasMoved value of the King.
-     */
-    public boolean getHasMoved() {
-        return this.hasMoved;
-    }
-
-    /**
-     * Sets the hasMoved value of the King.
-     */
-    public void move() {
-        this.hasMoved = true;
     }
 
     /**
      * Returns a string representation of the King.
      * If the King's color is WHITE, returns "K". Otherwise, returns "k".
+     * Whether the King has moved is kept by the game (see Chess.hasMoved).
      *
      * @return The string representation of the King.
      */
     public String toString() {
         if (this.getPieceColor() == Chess.PieceColor.WHITE)
-            if (this.hasMoved)
-                return "L";
-            else
-                return "K";
-        else if (this.hasMoved)
-            return "l";
+            return "K";
         else
             return "k";
     }
@@ -110,7 +73,7 @@ public class King extends Piece {
                     result.add(current);
                 else {
                     assert current != null;
-                    if (chess.getPieceAt(current).getPieceColor() != chess.getPieceAt(p).getPieceColor())
+                    if (chess.getPieceColorAt(current) != chess.getPieceColorAt(p))
                         result.add(current);
                 }
             }
@@ -123,8 +86,6 @@ public class King extends Piece {
      * Returns a clone of the King object.
      */
     public King clone() {
-        King k = (King) super.clone();
-        k.hasMoved = this.hasMoved;
-        return k;
+        return (King) super.clone();
     }
 }
@@ -56,7 +56,7 @@ public class Knight extends Piece {
             if ((i >= 0) && (i < Chess.BOARD_RANKS) && (j >= 0) && (j < Chess.BOARD_FILES)) {
                 Position current = Position.generateFromRankAndFile(i, j);
                 if (chess.isEmpty(current) || (current != null &&
-                        chess.getPieceAt(current).getPieceColor() != chess.getPieceAt(p).getPieceColor())) {
+                        chess.getPieceColorAt(current) != chess.getPieceColorAt(p))) {
                     positions.add(current);
                 }
             }
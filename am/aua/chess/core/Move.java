@@ -2,48 +2,116 @@ package am.aua.chess.core;
 
 /**
  * The am.aua.chess.core.Move class represents a move from one position to another.
- * It contains the origin and destination positions of the move.
+ * The move is held in the packed int form used by the engine (see pack), so a stored move
+ * costs a single int and its positions are the shared Position instances of its squares.
  */
 public class Move {
-    private Position origin;
-    private Position destination;
+    /** The flag of an ordinary move or capture. */
+    public static final int NORMAL = 0;
+    /** The flag of a pawn advancing two squares. */
+    public static final int DOUBLE_PUSH = 1;
+    /** The flag of a castling move, given as the move of the king. */
+    public static final int CASTLING = 2;
+    /** The flag of an en passant capture. */
+    public static final int EN_PASSANT = 3;
+    /** The promotion value of a move that is not a promotion. */
+    public static final int NO_PROMOTION = 0;
+
+    private static final int ORIGIN_MASK = 0x3F;
+    private static final int DESTINATION_MASK = 0x3F << 6;
+
+    private int packed;
 
     /**
      * Constructs a am.aua.chess.core.Move object with the given origin and destination positions.
      * 
      * @param origin the origin position of the move
      * @param destination the destination position of the move
+     * @throws IllegalArgumentException if a position is null
      */
     public Move(Position origin, Position destination) {
-        this.origin = origin;
-        this.destination = destination;
+        this(pack(squareOf(origin, "origin"), squareOf(destination, "destination")));
     }
 
     /**
-     * Constructs a am.aua.chess.core.Move object by copying the origin and destination positions from another am.aua.chess.core.Move object.
+     * Returns the square of a position given to the constructor.
+     *
+     * @param position the position
+     * @param role     the role of the position in the move, for the error message
+     * @return the square index of the position
+     * @throws IllegalArgumentException if the position is null
+     */
+    private static int squareOf(Position position, String role) {
+        if (position == null)
+            throw new IllegalArgumentException("The " + role + " of a move should not be null.");
+        return position.getSquare();
+    }
+
+    /**
+     * Constructs a am.aua.chess.core.Move object from a packed move.
+     *
+     * @param packed the packed move (see pack)
+     */
+    public Move(int packed) {
+        this.packed = packed;
+    }
+
+    /**
+     * Constructs a am.aua.chess.core.Move object by copying another am.aua.chess.core.Move object.
      * 
      * @param that the am.aua.chess.core.Move object to copy from
      */
     public Move(Move that) {
-        this(that.getOrigin(), that.getDestination());
+        this(that.packed);
+    }
+
+    /**
+     * Returns the packed form of a move, which is what the engine and Chess.performMove(int) work with.
+     *
+     * @param move the move to encode
+     * @return the packed move
+     */
+    public static int encode(Move move) {
+        return move.packed;
+    }
+
+    /**
+     * Returns a move holding the given packed move.
+     *
+     * @param move the packed move (see pack)
+     * @return the move
+     */
+    public static Move decode(int move) {
+        return new Move(move);
     }
 
     /**
-     * Returns a copy of the origin position of the move.
+     * Returns the origin position of the move.
+     * Positions are immutable, so the shared position of the square is returned.
      * 
-     * @return a copy of the origin position
+     * @return the origin position
      */
     public Position getOrigin() {
-        return new Position(this.origin);
+        return Position.generateFromSquare(originOf(this.packed));
     }
 
     /**
-     * Returns a copy of the destination position of the move.
+     * Returns the destination position of the move.
+     * Positions are immutable, so the shared position of the square is returned.
      * 
-     * @return a copy of the destination position
+     * @return the destination position
      */
     public Position getDestination() {
-        return new Position(this.destination);
+        return Position.generateFromSquare(destinationOf(this.packed));
+    }
+
+    /**
+     * Returns the type index of the piece a pawn is promoted to by the move.
+     *
+     * @return the type index of the promotion piece (see Bitboards), or NO_PROMOTION
+     */
+    public int getPromotion() {
+        return promotionOf(this.packed);
     }
 
     /**
@@ -52,7 +120,7 @@ public class Move {
      * @param origin the new origin position
      */
     public void setOrigin(Position origin) {
-        this.origin = origin;
+        this.packed = (this.packed & ~ORIGIN_MASK) | origin.getSquare();
     }
 
     /**
@@ -61,16 +129,138 @@ public class Move {
      * @param destination the new destination position
      */
     public void setDestination(Position destination) {
-        this.destination = destination;
+        this.packed = (this.packed & ~DESTINATION_MASK) | destination.getSquare() << 6;
+    }
+
+    /**
+     * Packs the origin and destination squares of an ordinary move into a single int.
+     *
+     * @param origin the square index of the origin (0 to 63)
+     * @param destination the square index of the destination (0 to 63)
+     * @return the packed move
+     */
+    public static int pack(int origin, int destination) {
+        return pack(origin, destination, NORMAL, NO_PROMOTION);
+    }
+
+    /**
+     * Packs a move into a single int.
+     * The origin occupies bits 0-5, the destination bits 6-11, the flag bits 12-13
+     * and the promotion piece type bits 14-16.
+     *
+     * @param origin the square index of the origin (0 to 63)
+     * @param destination the square index of the destination (0 to 63)
+     * @param flag the kind of the move (NORMAL, DOUBLE_PUSH, CASTLING or EN_PASSANT)
+     * @param promotion the type index of the piece a pawn is promoted to (see Bitboards), or NO_PROMOTION
+     * @return the packed move
+     */
+    public static int pack(int origin, int destination, int flag, int promotion) {
+        return origin | destination << 6 | flag << 12 | promotion << 14;
+    }
+
+    /**
+     * Returns the origin square index of a packed move.
+     *
+     * @param move the packed move
+     * @return the square index of the origin
+     */
+    public static int originOf(int move) {
+        return move & 0x3F;
+    }
+
+    /**
+     * Returns the destination square index of a packed move.
+     *
+     * @param move the packed move
+     * @return the square index of the destination
+     */
+    public static int destinationOf(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    /**
+     * Returns the flag of a packed move.
+     *
+     * @param move the packed move
+     * @return NORMAL, DOUBLE_PUSH, CASTLING or EN_PASSANT
+     */
+    public static int flagOf(int move) {
+        return (move >>> 12) & 0x3;
+    }
+
+    /**
+     * Returns the promotion piece type of a packed move.
+     *
+     * @param move the packed move
+     * @return the type index of the promotion piece (see Bitboards), or NO_PROMOTION
+     */
+    public static int promotionOf(int move) {
+        return (move >>> 14) & 0x7;
+    }
+
+    /**
+     * Returns a string representation of a packed move.
+     * The string contains the origin and destination positions separated by a space,
+     * followed by the letter of the promotion piece, if any.
+     *
+     * @param move the packed move
+     * @return a string representation of the move
+     */
+    public static String toString(int move) {
+        String result = squareName(originOf(move)) + " " + squareName(destinationOf(move));
+        if (promotionOf(move) != NO_PROMOTION)
+            result += "NBRQ".charAt(promotionOf(move) - 1);
+        return result;
+    }
+
+    /**
+     * Returns a compact string representation of a packed move, without a space, e.g. "E7E8Q",
+     * so that moves can be listed separated by spaces.
+     *
+     * @param move the packed move
+     * @return a compact string representation of the move
+     */
+    public static String toCompactString(int move) {
+        return toString(move).replace(" ", "");
+    }
+
+    /**
+     * Returns the name of the given square index, e.g. "A1".
+     *
+     * @param square the square index
+     * @return the name of the square
+     */
+    private static String squareName(int square) {
+        return "" + (char) ('A' + Bitboards.fileOf(square)) + (Bitboards.rankOf(square) + 1);
     }
 
     /**
      * Returns a string representation of the move.
-     * The string contains the origin and destination positions separated by a space.
+     * The string contains the origin and destination positions separated by a space,
+     * followed by the letter of the promotion piece, if any.
      * 
      * @return a string representation of the move
      */
     public String toString() {
-        return origin + " " + destination;
+        return toString(this.packed);
+    }
+
+    /**
+     * Checks whether another object is a move with the same packed form.
+     *
+     * @param other the object to compare with
+     * @return true if the object is an equal move, false otherwise
+     */
+    public boolean equals(Object other) {
+        return other instanceof Move && ((Move) other).packed == this.packed;
+    }
+
+    /**
+     * Returns the hash code of the move, which is its packed form.
+     *
+     * @return the hash code
+     */
+    public int hashCode() {
+        return this.packed;
     }
 }
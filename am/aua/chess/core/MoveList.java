@@ -0,0 +1,132 @@
+package am.aua.chess.core;
+
+import java.util.Arrays;
+
+/**
+ * The MoveList class is a reusable buffer of packed moves (see {@link Move#pack(int, int, int, int)}).
+ * The move generators of the Chess class fill a caller-owned list, so enumerating moves
+ * does not allocate once the buffer has grown to the needed size.
+ */
+public final class MoveList {
+    /** The default capacity of a move list, enough for any legal chess position. */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private int[] moves;
+    private int size;
+
+    /**
+     * Constructs an empty MoveList with the default capacity.
+     */
+    public MoveList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty MoveList with the given capacity.
+     *
+     * @param capacity the initial capacity of the list
+     */
+    public MoveList(int capacity) {
+        this.moves = new int[Math.max(1, capacity)];
+    }
+
+    /**
+     * Appends a packed move to the end of the list, growing the buffer when it is full.
+     *
+     * @param move the packed move
+     */
+    public void add(int move) {
+        if (size == moves.length)
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        moves[size++] = move;
+    }
+
+    /**
+     * Returns the packed move at the given index.
+     *
+     * @param index the index of the move
+     * @return the packed move
+     * @throws IndexOutOfBoundsException if the index is out of range (index < 0 || index >= size())
+     */
+    public int get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("No move available at index " + index);
+        return moves[index];
+    }
+
+    /**
+     * Replaces the packed move at the given index.
+     *
+     * @param index the index of the move
+     * @param move  the new packed move
+     * @throws IndexOutOfBoundsException if the index is out of range (index < 0 || index >= size())
+     */
+    public void set(int index, int move) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("No move available at index " + index);
+        moves[index] = move;
+    }
+
+    /**
+     * Returns the number of moves in the list.
+     *
+     * @return the number of moves
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the list contains no moves.
+     *
+     * @return true if the list is empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Checks whether the list contains the given packed move.
+     *
+     * @param move the packed move
+     * @return true if the move is in the list, false otherwise
+     */
+    public boolean contains(int move) {
+        for (int i = 0; i < size; i++)
+            if (moves[i] == move)
+                return true;
+        return false;
+    }
+
+    /**
+     * Removes all moves from the list. The buffer is kept for reuse.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Shrinks the list to the given size, dropping the moves beyond it.
+     *
+     * @param newSize the new size of the list
+     */
+    void truncate(int newSize) {
+        size = newSize;
+    }
+
+    /**
+     * Returns a string representation of the list.
+     * The moves are separated by commas, each written as its origin and destination.
+     *
+     * @return a string representation of the list
+     */
+    public String toString() {
+        StringBuilder result = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0)
+                result.append(", ");
+            result.append(Move.toString(moves[i]));
+        }
+        return result.append("]").toString();
+    }
+}
@@ -9,7 +9,6 @@ public class Pawn extends Piece{
 
     /**
      * Default constructor for Pawn class.
-     * Initializes the hasMoved variable to false.
      */
     public Pawn(){
         super();
@@ -17,7 +16,6 @@ public class Pawn extends Piece{
 
     /**
      * Constructor for Pawn class with color parameter.
-     * Initializes the hasMoved variable to false.
      * @param color The color of the pawn.
      */
     public Pawn(Chess.PieceColor color){
@@ -96,7 +94,7 @@ public class Pawn extends Piece{
      * @return true if the position is available for attack, false otherwise.
      */
     private boolean isAttackPositionAvailable(Chess chess, Position p){
-        return !chess.isEmpty(p) && (this.getPieceColor() != chess.getPieceAt(p).getPieceColor());
+        return !chess.isEmpty(p) && (this.getPieceColor() != chess.getPieceColorAt(p));
     }
 
     /**
@@ -0,0 +1,313 @@
+package am.aua.chess.core;
+
+import am.aua.chess.utils.IllegalArrangementException;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The Perft class counts the leaf nodes of the legal move tree of a position up to a given depth.
+ * The counts of well-known reference positions are published, so comparing against them
+ * verifies the move generator, and timing the count measures its throughput.
+ */
+public final class Perft {
+
+    /**
+     * The standard perft reference positions with their published leaf counts.
+     * The arrangement strings use the same format as the puzzles: castling is possible
+     * exactly where an unmoved king (K) and rook (R) stand on their home squares.
+     */
+    public enum ReferencePosition {
+        /** The initial position. */
+        START("RNBQKBNRPPPPPPPP--------------------------------pppppppprnbqkbnr", Chess.PieceColor.WHITE,
+                20L, 400L, 8902L, 197281L, 4865609L, 119060324L),
+        /** "Kiwipete", rich in castling, en passant and pins. */
+        KIWIPETE("R---K--RPPPBBPPP--N--Q-p-p--P------PN---bn--pnp-p-ppqpb-r---k--r", Chess.PieceColor.WHITE,
+                48L, 2039L, 97862L, 4085603L, 193690690L),
+        /** An endgame position with en passant discovered checks. */
+        POSITION_3("------------P-P----------S---p-lLP-----s---p------p-------------", Chess.PieceColor.WHITE,
+                14L, 191L, 2812L, 43238L, 674624L, 11030083L),
+        /** A position with promotions, captures into check and castling out of it. */
+        POSITION_4("S--Q-SL-Pp-P--PPq----N--BBP-P---nP-------b---nbNPppp-pppr---k--r", Chess.PieceColor.WHITE,
+                6L, 264L, 9467L, 422333L, 15833292L),
+        /** A middlegame position that used to catch generators promoting with check. */
+        POSITION_5("RNBQK--RPPP-NnPP----------B---------------p-----pp-Pbpppsnbq-l-s", Chess.PieceColor.WHITE,
+                44L, 1486L, 62379L, 2103487L, 89941194L),
+        /** A quiet, symmetrical middlegame position. */
+        POSITION_6("S----SL--PP-QPPPP-NP-N----B-P-b---b-p-B-p-np-n---pp-qppps----sl-", Chess.PieceColor.WHITE,
+                46L, 2079L, 89890L, 3894594L, 164075551L);
+
+        private final String arrangement;
+        private final Chess.PieceColor turn;
+        private final long[] expectedCounts;
+
+        ReferencePosition(String arrangement, Chess.PieceColor turn, long... expectedCounts) {
+            this.arrangement = arrangement;
+            this.turn = turn;
+            this.expectedCounts = expectedCounts;
+        }
+
+        /**
+         * Creates a new game starting from this position.
+         *
+         * @return the Chess object of the position
+         */
+        public Chess createGame() {
+            try {
+                return new Chess(arrangement, turn);
+            } catch (IllegalArrangementException e) {
+                throw new IllegalStateException("Invalid reference position " + this.name(), e);
+            }
+        }
+
+        /**
+         * Returns the deepest depth with a published leaf count.
+         *
+         * @return the maximum depth
+         */
+        public int getMaxDepth() {
+            return expectedCounts.length;
+        }
+
+        /**
+         * Returns the published leaf count at the given depth.
+         *
+         * @param depth the depth, from 1 to getMaxDepth()
+         * @return the expected number of leaf nodes
+         * @throws IllegalArgumentException if no count is published for the depth
+         */
+        public long getExpectedCount(int depth) {
+            if (depth < 1 || depth > expectedCounts.length)
+                throw new IllegalArgumentException("No reference count for depth " + depth);
+            return expectedCounts[depth - 1];
+        }
+    }
+
+    /**
+     * The result of a parallel perft run: the leaf count together with the work done by every thread.
+     */
+    public static final class ParallelResult {
+        private final long nodes;
+        private final long elapsedNanos;
+        private final Map<String, Long> nodesPerThread;
+        private final Map<String, Long> busyNanosPerThread;
+
+        private ParallelResult(long nodes, long elapsedNanos, Map<String, Long> nodesPerThread,
+                               Map<String, Long> busyNanosPerThread) {
+            this.nodes = nodes;
+            this.elapsedNanos = elapsedNanos;
+            this.nodesPerThread = nodesPerThread;
+            this.busyNanosPerThread = busyNanosPerThread;
+        }
+
+        /**
+         * Returns the number of leaf nodes.
+         *
+         * @return the leaf count
+         */
+        public long getNodes() {
+            return nodes;
+        }
+
+        /**
+         * Returns the wall-clock time of the run.
+         *
+         * @return the elapsed time in nanoseconds
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Returns the number of leaf nodes counted by every worker thread.
+         *
+         * @return the leaf counts keyed by thread name
+         */
+        public Map<String, Long> getNodesPerThread() {
+            return new TreeMap<>(nodesPerThread);
+        }
+
+        /**
+         * Returns the CPU time every worker thread spent counting subtrees.
+         *
+         * @return the busy times in nanoseconds keyed by thread name
+         */
+        public Map<String, Long> getBusyNanosPerThread() {
+            return new TreeMap<>(busyNanosPerThread);
+        }
+
+        /**
+         * Returns the speedup over counting on one thread, estimated as the total CPU time
+         * the workers spent counting divided by the wall-clock time.
+         *
+         * @return the estimated speedup
+         */
+        public double getSpeedup() {
+            long busy = 0;
+            for (long nanos : busyNanosPerThread.values())
+                busy += nanos;
+            return (double) busy / Math.max(1, elapsedNanos);
+        }
+    }
+
+    /**
+     * The fork-join task counting the subtree of one position. Near the root the task forks one
+     * subtask per legal move, each on its own copy of the game; deeper subtrees are counted in place.
+     */
+    private static final class PerftTask extends RecursiveTask<Long> {
+        private final Chess chess;
+        private final int depth;
+        private final Map<String, Long> nodesPerThread;
+        private final Map<String, Long> busyNanosPerThread;
+
+        PerftTask(Chess chess, int depth, Map<String, Long> nodesPerThread, Map<String, Long> busyNanosPerThread) {
+            this.chess = chess;
+            this.depth = depth;
+            this.nodesPerThread = nodesPerThread;
+            this.busyNanosPerThread = busyNanosPerThread;
+        }
+
+        @Override
+        protected Long compute() {
+            if (depth <= SEQUENTIAL_DEPTH) {
+                long start = busyNanos();
+                long nodes = Perft.perft(chess, depth);
+                String thread = Thread.currentThread().getName();
+                nodesPerThread.merge(thread, nodes, Long::sum);
+                busyNanosPerThread.merge(thread, busyNanos() - start, Long::sum);
+                return nodes;
+            }
+
+            MoveList moves = new MoveList();
+            chess.generateLegalMoves(moves);
+            PerftTask[] subtasks = new PerftTask[moves.size()];
+            for (int i = 0; i < moves.size(); i++) {
+                Chess child = chess.clone();
+                child.makeMove(moves.get(i));
+                subtasks[i] = new PerftTask(child, depth - 1, nodesPerThread, busyNanosPerThread);
+            }
+            invokeAll(subtasks);
+
+            long nodes = 0;
+            for (PerftTask subtask : subtasks)
+                nodes += subtask.join();
+            return nodes;
+        }
+    }
+
+    /** The remaining depth at which parallel perft stops splitting and counts sequentially. */
+    private static final int SEQUENTIAL_DEPTH = 3;
+
+    private Perft() {
+    }
+
+    /**
+     * Returns the CPU time of the current thread, or the wall-clock time if the JVM does not measure it.
+     * CPU time keeps the per-thread rates honest when there are more workers than cores.
+     *
+     * @return the current time in nanoseconds
+     */
+    private static long busyNanos() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    /**
+     * Counts the leaf nodes of the legal move tree of the given game.
+     * The game is left in the same state as before the call.
+     *
+     * @param chess the game to count from
+     * @param depth the number of plies to look ahead
+     * @return the number of leaf nodes
+     */
+    public static long perft(Chess chess, int depth) {
+        if (depth <= 0)
+            return 1;
+        return perft(chess, depth, createMoveLists(depth));
+    }
+
+    /**
+     * Counts the leaf nodes below every legal root move of the given game.
+     * The game is left in the same state as before the call.
+     *
+     * @param chess the game to count from
+     * @param depth the number of plies to look ahead, including the root move
+     * @return the leaf counts keyed by the root move, in generation order
+     */
+    public static LinkedHashMap<String, Long> divide(Chess chess, int depth) {
+        LinkedHashMap<String, Long> result = new LinkedHashMap<>();
+        if (depth <= 0)
+            return result;
+
+        MoveList[] moveLists = createMoveLists(depth);
+        MoveList rootMoves = moveLists[depth];
+        chess.generateLegalMoves(rootMoves);
+        for (int i = 0; i < rootMoves.size(); i++) {
+            int move = rootMoves.get(i);
+            chess.makeMove(move);
+            result.put(Move.toString(move), depth == 1 ? 1L : perft(chess, depth - 1, moveLists));
+            chess.unmakeMove();
+        }
+        return result;
+    }
+
+    /**
+     * Counts the leaf nodes using one preallocated move list per remaining depth.
+     *
+     * @param chess     the game to count from
+     * @param depth     the number of plies to look ahead, at least 1
+     * @param moveLists the move lists indexed by remaining depth
+     * @return the number of leaf nodes
+     */
+    static long perft(Chess chess, int depth, MoveList[] moveLists) {
+        MoveList moves = moveLists[depth];
+        int count = chess.generateLegalMoves(moves);
+        if (depth == 1)
+            return count;
+
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            chess.makeMove(moves.get(i));
+            nodes += perft(chess, depth - 1, moveLists);
+            chess.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Creates the move lists needed to search up to the given depth.
+     *
+     * @param depth the maximum depth
+     * @return the move lists indexed by remaining depth
+     */
+    static MoveList[] createMoveLists(int depth) {
+        MoveList[] moveLists = new MoveList[depth + 1];
+        for (int i = 0; i <= depth; i++)
+            moveLists[i] = new MoveList();
+        return moveLists;
+    }
+
+    /**
+     * Counts the leaf nodes of the legal move tree of the given game on a fork-join pool.
+     * The subtrees of the moves near the root are split across the pool, each on its own copy
+     * of the game, so the given game is not modified.
+     *
+     * @param chess the game to count from
+     * @param depth the number of plies to look ahead
+     * @param pool  the pool to run the count on
+     * @return the leaf count with the work done by every thread
+     */
+    public static ParallelResult parallelPerft(Chess chess, int depth, ForkJoinPool pool) {
+        Map<String, Long> nodesPerThread = new ConcurrentHashMap<>();
+        Map<String, Long> busyNanosPerThread = new ConcurrentHashMap<>();
+        long start = System.nanoTime();
+        long nodes = pool.invoke(new PerftTask(chess.clone(), depth, nodesPerThread, busyNanosPerThread));
+        return new ParallelResult(nodes, System.nanoTime() - start, nodesPerThread, busyNanosPerThread);
+    }
+}
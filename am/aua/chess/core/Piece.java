@@ -6,6 +6,8 @@ import java.util.ArrayList;
  * The Piece class represents a chess piece.
  * It contains methods to get the color of the piece and all possible destinations for the piece.
  * The class is extended by specific piece classes such as Bishop, King, Knight, Pawn, Queen, and Rook.
+ * Pieces hold no state besides their color, so the game hands out one shared instance
+ * of every kind of piece; whether a piece has moved is kept by the game (see Chess.hasMoved).
  */
 public abstract class Piece implements Cloneable {
     private final Chess.PieceColor color; // The color of piece
@@ -62,13 +64,11 @@ public abstract class Piece implements Cloneable {
 
     /**
      * Returns a clone of the Piece object.
+     * Pieces are immutable, so the piece itself is returned.
+     *
+     * @return the piece
      */
     public Piece clone() {
-        try {
-            return (Piece) super.clone();
-        } catch (CloneNotSupportedException e) {
-            System.out.println("Cloning not allowed.");
-            return null;
-        }
+        return this;
     }
 }
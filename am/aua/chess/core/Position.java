@@ -3,61 +3,32 @@ package am.aua.chess.core;
 /**
  * The am.aua.chess.core.Position class represents a position on a chessboard.
  * It stores the rank and file of the position.
+ * <p>
+ * Positions are immutable flyweights: there is exactly one Position per square, taken from a table
+ * of 64 instances built once, so positions are shared freely and never allocated while playing.
+ * Use generateFromRankAndFile, generateFromSquare or generateFromString to obtain one.
  */
-public class Position {
-    private int rank;
-    private int file;
+public final class Position {
+    /** The positions of every square, indexed by square index (rank * 8 + file, A1 = 0). */
+    private static final Position[] SQUARES = new Position[Chess.BOARD_RANKS * Chess.BOARD_FILES];
 
-    /**
-     * Constructor for creating a Position object with specified rank and file.
-     *
-     * @param rank    the rank of the position
-     * @param file the file of the position
-     */
-    public Position(int rank, int file) {
-        this.setRow(rank);
-        this.setColumn(file);
+    static {
+        for (int rank = 0; rank < Chess.BOARD_RANKS; rank++)
+            for (int file = 0; file < Chess.BOARD_FILES; file++)
+                SQUARES[rank * Chess.BOARD_FILES + file] = new Position(rank, file);
     }
 
-    /**
-     * Non-argument constructor for creating a Position object with default rank and file (0, 0).
-     */
-    public Position() {
-        this(0, 0);
-    }
-
-    /**
-     * Copy constructor for creating an Position object by copying another Position object.
-     *
-     * @param that the Position object to be copied
-     */
-    public Position(Position that) {
-        this(that.getRank(), that.getFile());
-    }
+    private final int rank;
+    private final int file;
 
     /**
-     * Sets the rank of the position.
+     * Constructor for creating the Position of the table with specified rank and file.
      *
-     * @param rank the rank to be set
+     * @param rank    the rank of the position
+     * @param file the file of the position
      */
-    public void setRow(int rank) {
-        if ((rank < 0) || (rank > (Chess.BOARD_RANKS-1))) {
-            System.out.println("Row must be in range from 0 to " + (Chess.BOARD_RANKS-1));
-            return;
-        }
+    private Position(int rank, int file) {
         this.rank = rank;
-    }
-
-    /**
-     * Sets the file of the position.
-     *
-     * @param file the file to be set
-     */
-    public void setColumn(int file) {
-        if ((file < 0) || (file > Chess.BOARD_FILES-1)) {
-            System.out.println("Column must be in range from 0 to " + (Chess.BOARD_FILES-1));
-            return;
-        }
         this.file = file;
     }
 
@@ -79,6 +50,15 @@ public class Position {
         return file;
     }
 
+    /**
+     * Returns the square index of the position.
+     *
+     * @return the square index, rank * 8 + file (A1 = 0)
+     */
+    public int getSquare() {
+        return rank * Chess.BOARD_FILES + file;
+    }
+
     /**
      * Returns a string representation of the position.
      *
@@ -92,7 +72,7 @@ public class Position {
      * Generates a Position object from a string representation.
      *
      * @param s the string representation of the position (e.g., "A1")
-     * @return a Position object generated from the string representation
+     * @return the shared Position of that square, or null if the string is not a square name
      */
     public static Position generateFromString(String s) {
         if (s.length() != 2) {
@@ -111,26 +91,37 @@ public class Position {
             return null;
         }
 
-        return new Position(rank, file);
+        return SQUARES[rank * Chess.BOARD_FILES + file];
     }
 
     /**
      * Generates a Position object from rank and file numbers.
      *
-     * @param rank the rank number (rank) of the position (1 to Chess.BOARD_SIZE)
-     * @param file the file number (file) of the position (1 to Chess.BOARD_SIZE)
-     * @return a Position object generated from the rank and file numbers
+     * @param rank the rank number (rank) of the position (0 to Chess.BOARD_RANKS - 1)
+     * @param file the file number (file) of the position (0 to Chess.BOARD_FILES - 1)
+     * @return the shared Position of that square, or null if it is off the board
      */
     public static Position generateFromRankAndFile(int rank, int file) {
-        if ((rank < 0) || (rank > Chess.BOARD_RANKS)) {
+        if ((rank < 0) || (rank > Chess.BOARD_RANKS-1)) {
             System.out.println("Rank must be in range from 0 to " + (Chess.BOARD_RANKS-1));
             return null;
         }
-        if ((file < 0) || (file > Chess.BOARD_FILES)) {
+        if ((file < 0) || (file > Chess.BOARD_FILES-1)) {
             System.out.println("File must be in range from 0 to " + (Chess.BOARD_FILES-1));
             return null;
         }
-        return new Position(rank, file);
+        return SQUARES[rank * Chess.BOARD_FILES + file];
+    }
+
+    /**
+     * Generates a Position object from a square index.
+     *
+     * @param square the square index, rank * 8 + file (A1 = 0)
+     * @return the shared Position of that square
+     * @throws ArrayIndexOutOfBoundsException if the square index is not between 0 and 63
+     */
+    public static Position generateFromSquare(int square) {
+        return SQUARES[square];
     }
 
     /**
@@ -165,4 +156,13 @@ public class Position {
         return false;
     }
 
+    /**
+     * Returns a hash code consistent with equals: the square index of the position.
+     *
+     * @return the hash code of the position
+     */
+    public int hashCode() {
+        return this.getSquare();
+    }
+
 }
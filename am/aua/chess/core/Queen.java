@@ -57,7 +57,7 @@ public class Queen extends Piece {
                     result.add(current);
                 else {
                     assert current != null;
-                    if (chess.getPieceAt(current).getPieceColor() != chess.getPieceAt(p).getPieceColor())
+                    if (chess.getPieceColorAt(current) != chess.getPieceColorAt(p))
                         result.add(current);
                     break;
                 }
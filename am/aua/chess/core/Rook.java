@@ -11,14 +11,11 @@ import java.util.ArrayList;
  * It extends the Piece class and inherits its properties and methods.
  */
 public class Rook extends Piece {
-    private boolean hasMoved;
-
     /**
      * Constructs a new Rook object with the default color of WHITE.
      */
     public Rook() {
         super();
-        this.hasMoved = false;
     }
 
     /**
@@ -28,50 +25,18 @@ public class Rook extends Piece {
      */
     public Rook(Chess.PieceColor color) {
         super(color);
-        this.hasMoved = false;
-    }
-
-    /**
-     * Constructs a new Rook object with the specified color and move status.
-     *
-     * @param color    the color of the rook piece
-     * @param hasMoved the move status of the rook piece
-     */
-    public Rook(Chess.PieceColor color, boolean hasMoved) {
-        super(color);
-        this.hasMoved = hasMoved;
-    }
-    /**
-     * Returns the move status of the rook piece.
-     *
-     * @return the move status of the rook piece
-     */
-    public boolean getHasMoved() {
-        return this.hasMoved;
-    }
-
-    /**
-     * Sets the move status of the rook piece.
-     */
-    public void move() {
-        this.hasMoved = true;
     }
 
     /**
      * Returns a string representation of the rook piece.
      * The string representation is "R" for white rook and "r" for black rook.
+     * Whether the rook has moved is kept by the game (see Chess.hasMoved).
      *
      * @return a string representation of the rook piece
      */
     public String toString() {
         if (this.getPieceColor() == Chess.PieceColor.WHITE)
-            if (this.hasMoved)
-                return "S";
-            else
-                return "R";
-        else
-        if (this.hasMoved)
-            return "s";
+            return "R";
         else
             return "r";
     }
@@ -110,7 +75,7 @@ public class Rook extends Piece {
                     result.add(current);
                 else {
                     assert current != null;
-                    if (chess.getPieceAt(current).getPieceColor() != chess.getPieceAt(p).getPieceColor())
+                    if (chess.getPieceColorAt(current) != chess.getPieceColorAt(p))
                         result.add(current);
                     break;
                 }
@@ -126,8 +91,6 @@ public class Rook extends Piece {
      * Returns a clone of the Rook object.
      */
     public Rook clone() {
-        Rook r = (Rook) super.clone();
-        r.hasMoved = this.hasMoved;
-        return r;
+        return (Rook) super.clone();
     }
 }
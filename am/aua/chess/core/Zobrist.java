@@ -0,0 +1,86 @@
+package am.aua.chess.core;
+
+/**
+ * The Zobrist class holds the random keys used to hash chess positions.
+ * The key of a position is the XOR of the keys of its pieces on their squares, of the side to move,
+ * of the castling rights and of the file of a possible en passant capture. Since XOR is its own
+ * inverse, the key is updated incrementally by XOR-ing the keys of whatever a move changes.
+ */
+public final class Zobrist {
+    /** The number of castling right combinations (four independent rights). */
+    public static final int CASTLING_COMBINATIONS = 16;
+
+    private static final long[][] PIECE_KEYS = new long[Bitboards.PIECE_INDICES][Bitboards.SQUARES];
+    private static final long[] CASTLING_KEYS = new long[CASTLING_COMBINATIONS];
+    private static final long[] EN_PASSANT_KEYS = new long[Chess.BOARD_FILES];
+    private static final long BLACK_TO_MOVE_KEY;
+
+    static {
+        // A fixed seed keeps the keys, and therefore stored position keys, identical across runs.
+        long[] state = {0x9E3779B97F4A7C15L};
+        for (long[] keys : PIECE_KEYS)
+            for (int square = 0; square < keys.length; square++)
+                keys[square] = nextKey(state);
+        for (int i = 0; i < CASTLING_KEYS.length; i++)
+            CASTLING_KEYS[i] = i == 0 ? 0L : nextKey(state);
+        for (int i = 0; i < EN_PASSANT_KEYS.length; i++)
+            EN_PASSANT_KEYS[i] = nextKey(state);
+        BLACK_TO_MOVE_KEY = nextKey(state);
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Returns the key of a piece standing on a square.
+     *
+     * @param pieceIndex the bitboard index of the piece
+     * @param square     the square index
+     * @return the key of the piece on the square
+     */
+    public static long pieceKey(int pieceIndex, int square) {
+        return PIECE_KEYS[pieceIndex][square];
+    }
+
+    /**
+     * Returns the key of a combination of castling rights. No rights hash to 0.
+     *
+     * @param castlingRights the castling rights as a 4-bit mask
+     * @return the key of the castling rights
+     */
+    public static long castlingKey(int castlingRights) {
+        return CASTLING_KEYS[castlingRights];
+    }
+
+    /**
+     * Returns the key of an en passant capture being possible on the given file.
+     *
+     * @param file the file of the en passant square
+     * @return the key of the en passant file
+     */
+    public static long enPassantKey(int file) {
+        return EN_PASSANT_KEYS[file];
+    }
+
+    /**
+     * Returns the key XOR-ed into the position key when Black is to move.
+     *
+     * @return the side to move key
+     */
+    public static long blackToMoveKey() {
+        return BLACK_TO_MOVE_KEY;
+    }
+
+    /**
+     * Produces the next key of the SplitMix64 sequence.
+     *
+     * @param state the one-element state of the sequence, advanced in place
+     * @return the next key
+     */
+    private static long nextKey(long[] state) {
+        long z = (state[0] += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,36 @@
+package am.aua.chess.engine;
+
+import am.aua.chess.core.Chess;
+
+/**
+ * The Evaluator class scores chess positions statically, without searching.
+ * The score is the tapered material and piece-square score that Chess maintains incrementally;
+ * the plain piece values are kept for move ordering.
+ */
+public final class Evaluator {
+    /** The values of the piece types in centipawns, ordered by type index. */
+    private static final int[] PIECE_VALUES = {100, 320, 330, 500, 900, 0};
+
+    private Evaluator() {
+    }
+
+    /**
+     * Evaluates the given position.
+     *
+     * @param chess the position to evaluate
+     * @return the score in centipawns from the side to move's point of view
+     */
+    public static int evaluate(Chess chess) {
+        return chess.evaluate();
+    }
+
+    /**
+     * Returns the value of a piece type.
+     *
+     * @param type the type index of the piece
+     * @return the value in centipawns
+     */
+    public static int pieceValue(int type) {
+        return PIECE_VALUES[type];
+    }
+}
@@ -0,0 +1,113 @@
+package am.aua.chess.engine;
+
+import am.aua.chess.core.Move;
+
+/**
+ * The MateResult class holds the outcome of a mate search: the number of moves of the shortest
+ * forced mate with its line, or how deep the search proved that there is none.
+ */
+public final class MateResult {
+    private final int mateInMoves;
+    private final int searchedMoves;
+    private final int[] line;
+    private final long nodes;
+    private final boolean exhausted;
+
+    /**
+     * Constructs a new MateResult.
+     *
+     * @param mateInMoves   the number of moves of the shortest mate, or 0 if none was found
+     * @param searchedMoves the largest number of moves within which the search is conclusive
+     * @param line          the packed moves of the mating line, both sides alternating
+     * @param nodes         the number of searched nodes
+     * @param exhausted     whether the node budget ran out before the search was conclusive
+     */
+    MateResult(int mateInMoves, int searchedMoves, int[] line, long nodes, boolean exhausted) {
+        this.mateInMoves = mateInMoves;
+        this.searchedMoves = searchedMoves;
+        this.line = line;
+        this.nodes = nodes;
+        this.exhausted = exhausted;
+    }
+
+    /**
+     * Checks whether a forced mate was found.
+     *
+     * @return true if the side to move mates by force
+     */
+    public boolean isMate() {
+        return mateInMoves > 0;
+    }
+
+    /**
+     * Returns the number of moves of the shortest forced mate.
+     *
+     * @return the number of moves of the side to move, or 0 if no mate was found
+     */
+    public int getMateInMoves() {
+        return mateInMoves;
+    }
+
+    /**
+     * Returns the largest number of moves within which the search is conclusive: there is no mate
+     * in fewer moves than the mate found, or, when none was found, no mate within that many moves.
+     *
+     * @return the number of moves
+     */
+    public int getSearchedMoves() {
+        return searchedMoves;
+    }
+
+    /**
+     * Returns the mating line: the moves of the side to move and the longest defence.
+     *
+     * @return a copy of the packed moves, empty if no mate was found
+     */
+    public int[] getLine() {
+        return line.clone();
+    }
+
+    /**
+     * Returns the mating line in compact notation, the moves separated by spaces, e.g. "D1H5 G8F6 H5F7".
+     *
+     * @return the line, empty if no mate was found
+     */
+    public String getLineString() {
+        StringBuilder result = new StringBuilder();
+        for (int move : line) {
+            if (result.length() > 0)
+                result.append(' ');
+            result.append(Move.toCompactString(move));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns the number of searched nodes.
+     *
+     * @return the number of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Checks whether the node budget ran out before the search was conclusive.
+     *
+     * @return true if the search gave up
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * Returns a string representation of the result.
+     *
+     * @return the mate and its line, or how far no mate was found
+     */
+    public String toString() {
+        if (isMate())
+            return "mate in " + mateInMoves + ": " + getLineString() + " (" + nodes + " nodes)";
+        return (exhausted ? "gave up, no mate in " : "no mate in ") + searchedMoves + " moves (" + nodes + " nodes)";
+    }
+}
@@ -0,0 +1,251 @@
+package am.aua.chess.engine;
+
+import am.aua.chess.core.Chess;
+import am.aua.chess.core.MoveList;
+
+/**
+ * The MateSolver class finds the shortest forced mate of the side to move, for mate-in-N puzzles.
+ * <p>
+ * Unlike the Searcher, it does not score positions: it proves, by an AND/OR search deepened one move
+ * at a time, that the side to move (the attacker) has a move against which every defence is mated
+ * within the remaining moves. The attacker tries checks first, and only checks on its last move;
+ * the defender tries first the reply that refuted the attacker at the same ply before.
+ * Proven mates and refuted depths of attacker positions are remembered in a transposition table,
+ * so that each iteration builds on the previous ones; the table may be shared with other MateSolvers,
+ * but not with Searchers, as the entries do not hold scores. A MateSolver keeps its own working copy
+ * of the game and is not safe to share between threads.
+ */
+public class MateSolver {
+    /** The largest number of moves a mate can be searched for. */
+    public static final int MAX_MOVES = 32;
+    /** The largest distance from the root, of the last defender position of the longest mate. */
+    private static final int MAX_PLY = 2 * MAX_MOVES + 1;
+    /** The entry score of an attacker position that mates within the entry depth. */
+    private static final int MATES = 1;
+    /** The entry score of an attacker position that does not mate within the entry depth. */
+    private static final int NO_MATE = 0;
+
+    private final TranspositionTable table;
+    private Chess chess;
+    private long nodes;
+    private long maxNodes;
+    private boolean exhausted;
+
+    private final MoveList[] moveLists = new MoveList[MAX_PLY + 1];
+    private final int[] refutations = new int[MAX_PLY + 1];
+
+    /**
+     * Constructs a new MateSolver with a transposition table of the default size.
+     */
+    public MateSolver() {
+        this(new TranspositionTable());
+    }
+
+    /**
+     * Constructs a new MateSolver storing its results in the given transposition table.
+     *
+     * @param table the transposition table, which may be shared with other MateSolvers
+     */
+    public MateSolver(TranspositionTable table) {
+        this.table = table;
+        for (int ply = 0; ply <= MAX_PLY; ply++)
+            moveLists[ply] = new MoveList();
+    }
+
+    /**
+     * Searches the given position for the shortest forced mate of the side to move.
+     * The given game is not modified.
+     *
+     * @param game     the position to solve
+     * @param maxMoves the largest number of moves of the side to move to search a mate within
+     * @param maxNodes the number of nodes after which the search gives up
+     * @return the shortest mate with its line, or how far there is none
+     * @throws IllegalArgumentException if the number of moves is not between 1 and MAX_MOVES
+     */
+    public MateResult solve(Chess game, int maxMoves, long maxNodes) {
+        if (maxMoves < 1 || maxMoves > MAX_MOVES)
+            throw new IllegalArgumentException("The number of moves should be between 1 and " + MAX_MOVES + ".");
+        this.chess = game.clone();
+        this.nodes = 0;
+        this.maxNodes = maxNodes;
+        this.exhausted = false;
+        java.util.Arrays.fill(refutations, 0);
+
+        for (int moves = 1; moves <= maxMoves; moves++) {
+            boolean mates = this.attackerMates(moves, 0);
+            if (exhausted)
+                return new MateResult(0, moves - 1, new int[0], nodes, true);
+            if (mates) {
+                long searchNodes = nodes;
+                this.maxNodes = Long.MAX_VALUE;
+                return new MateResult(moves, moves, this.mainLine(moves), searchNodes, false);
+            }
+        }
+        return new MateResult(0, maxMoves, new int[0], nodes, false);
+    }
+
+    /**
+     * Checks whether the side to move mates within the given number of moves.
+     *
+     * @param moves the number of moves of the side to move
+     * @param ply   the distance from the root
+     * @return true if it mates, false if it does not or the node budget ran out
+     */
+    private boolean attackerMates(int moves, int ply) {
+        if (++nodes > maxNodes) {
+            exhausted = true;
+            return false;
+        }
+
+        long key = chess.getZobristKey();
+        long data = table.probe(key);
+        int hashMove = SearchResult.NO_MOVE;
+        if (data != TranspositionTable.MISS) {
+            int depth = TranspositionTable.depthOf(data);
+            int result = TranspositionTable.scoreOf(data, 0);
+            if (result == NO_MATE && depth >= moves)
+                return false;
+            if (result == MATES && depth <= moves)
+                return true;
+            hashMove = TranspositionTable.moveOf(data);
+        }
+
+        MoveList legalMoves = moveLists[ply];
+        chess.generateLegalMoves(legalMoves);
+        if (hashMove != SearchResult.NO_MOVE && legalMoves.contains(hashMove) && this.mates(hashMove, moves, ply))
+            return this.store(key, hashMove, MATES, moves);
+        if (exhausted)
+            return false;
+
+        // Checks first; on the last move nothing else can mate.
+        for (int pass = 0; pass < (moves == 1 ? 1 : 2); pass++) {
+            for (int i = 0; i < legalMoves.size(); i++) {
+                int move = legalMoves.get(i);
+                if (move == hashMove)
+                    continue;
+                chess.makeMove(move);
+                boolean check = chess.isKingUnderAttack(chess.getTurn());
+                boolean mates = check == (pass == 0) && this.defenderLost(moves, ply + 1);
+                chess.unmakeMove();
+                if (exhausted)
+                    return false;
+                if (mates)
+                    return this.store(key, move, MATES, moves);
+            }
+        }
+        return this.store(key, SearchResult.NO_MOVE, NO_MATE, moves);
+    }
+
+    /**
+     * Checks whether a move of the attacker mates within the given number of moves.
+     *
+     * @param move  the packed move of the attacker
+     * @param moves the number of moves of the attacker, including this one
+     * @param ply   the distance of the attacker position from the root
+     * @return true if every defence is mated
+     */
+    private boolean mates(int move, int moves, int ply) {
+        chess.makeMove(move);
+        boolean mates = this.defenderLost(moves, ply + 1);
+        chess.unmakeMove();
+        return mates;
+    }
+
+    /**
+     * Checks whether the defender, to move, is mated now or within the given number of attacker moves.
+     *
+     * @param moves the number of attacker moves, including the one just played
+     * @param ply   the distance from the root
+     * @return true if every defence is mated, false if one escapes or the node budget ran out
+     */
+    private boolean defenderLost(int moves, int ply) {
+        nodes++;
+        MoveList replies = moveLists[ply];
+        chess.generateLegalMoves(replies);
+        if (replies.isEmpty())
+            return chess.isKingUnderAttack(chess.getTurn());
+        if (moves == 1)
+            return false;
+
+        // The reply that refuted the attacker at this ply before is likely to refute it again.
+        for (int i = 1; i < replies.size(); i++) {
+            if (replies.get(i) == refutations[ply]) {
+                replies.set(i, replies.get(0));
+                replies.set(0, refutations[ply]);
+                break;
+            }
+        }
+        for (int i = 0; i < replies.size(); i++) {
+            int reply = replies.get(i);
+            chess.makeMove(reply);
+            boolean mated = this.attackerMates(moves - 1, ply + 1);
+            chess.unmakeMove();
+            if (!mated) {
+                if (!exhausted)
+                    refutations[ply] = reply;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remembers the outcome of an attacker position.
+     *
+     * @param key    the Zobrist key of the position
+     * @param move   the mating move, or SearchResult.NO_MOVE
+     * @param result MATES or NO_MATE
+     * @param moves  the number of moves the outcome holds for
+     * @return true if the result is MATES
+     */
+    private boolean store(long key, int move, int result, int moves) {
+        table.store(key, move, result, moves, TranspositionTable.EXACT, 0);
+        return result == MATES;
+    }
+
+    /**
+     * Builds the mating line of the root position: the attacker mates as fast as it can,
+     * and the defender delays the mate as long as it can.
+     *
+     * @param moves the number of moves of the shortest mate of the root position
+     * @return the packed moves of the line
+     */
+    private int[] mainLine(int moves) {
+        int[] line = new int[2 * moves - 1];
+        int length = 0;
+        int remaining = moves;
+        MoveList legalMoves = new MoveList();
+        while (remaining > 0) {
+            chess.generateLegalMoves(legalMoves);
+            int mating = SearchResult.NO_MOVE;
+            for (int i = 0; i < legalMoves.size() && mating == SearchResult.NO_MOVE; i++)
+                if (this.mates(legalMoves.get(i), remaining, 0))
+                    mating = legalMoves.get(i);
+            if (mating == SearchResult.NO_MOVE)
+                break;
+            line[length++] = mating;
+            chess.makeMove(mating);
+
+            chess.generateLegalMoves(legalMoves);
+            int defence = SearchResult.NO_MOVE;
+            int longest = 0;
+            for (int i = 0; i < legalMoves.size(); i++) {
+                chess.makeMove(legalMoves.get(i));
+                int mateIn = 1;
+                while (mateIn < remaining - 1 && !this.attackerMates(mateIn, 0))
+                    mateIn++;
+                chess.unmakeMove();
+                if (mateIn > longest) {
+                    longest = mateIn;
+                    defence = legalMoves.get(i);
+                }
+            }
+            if (defence == SearchResult.NO_MOVE)
+                break;
+            line[length++] = defence;
+            chess.makeMove(defence);
+            remaining = longest;
+        }
+        return java.util.Arrays.copyOf(line, length);
+    }
+}
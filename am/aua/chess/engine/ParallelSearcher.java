@@ -0,0 +1,105 @@
+package am.aua.chess.engine;
+
+import am.aua.chess.core.Chess;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The ParallelSearcher class searches on several threads with Lazy SMP: helper threads search the same
+ * root as the main thread, sharing only the transposition table. Half of the helpers start one ply deeper,
+ * so the threads spread over different parts of the tree and fill the table with results the main thread
+ * then finds instead of searching them itself.
+ * <p>
+ * The main thread runs on the calling thread, obeys the limits and reports the result;
+ * the helpers are stopped as soon as it finishes. The node limit only counts the main thread's nodes.
+ */
+public class ParallelSearcher {
+    private final TranspositionTable table;
+    private final Searcher[] searchers;
+
+    /**
+     * Constructs a new ParallelSearcher with a transposition table of the default size.
+     *
+     * @param threads the number of threads, including the calling one
+     * @throws IllegalArgumentException if the number of threads is not positive
+     */
+    public ParallelSearcher(int threads) {
+        this(threads, new TranspositionTable());
+    }
+
+    /**
+     * Constructs a new ParallelSearcher sharing the given transposition table between its threads.
+     *
+     * @param threads the number of threads, including the calling one
+     * @param table   the transposition table
+     * @throws IllegalArgumentException if the number of threads is not positive
+     */
+    public ParallelSearcher(int threads, TranspositionTable table) {
+        if (threads < 1)
+            throw new IllegalArgumentException("The number of threads should be at least 1.");
+        this.table = table;
+        this.searchers = new Searcher[threads];
+        for (int i = 0; i < threads; i++)
+            this.searchers[i] = new Searcher(table);
+    }
+
+    /**
+     * Returns the number of threads.
+     *
+     * @return the number of threads, including the calling one
+     */
+    public int getThreads() {
+        return searchers.length;
+    }
+
+    /**
+     * Searches the given position for the best move of the side to move.
+     * The given game is not modified.
+     *
+     * @param game   the position to search
+     * @param limits when to stop searching
+     * @return the main thread's best move, with its score and principal variation, and the nodes of all threads
+     */
+    public SearchResult search(Chess game, SearchLimits limits) {
+        long start = System.currentTimeMillis();
+        table.newSearch();
+        AtomicBoolean stopSignal = new AtomicBoolean();
+        SearchLimits helperLimits = SearchLimits.depth(limits.getMaxDepth());
+        SearchResult[] helperResults = new SearchResult[searchers.length];
+        Thread[] helpers = new Thread[searchers.length];
+        for (int i = 1; i < searchers.length; i++) {
+            int index = i;
+            helpers[i] = new Thread(() -> helperResults[index] =
+                    searchers[index].search(game, helperLimits, stopSignal, 1 + index % 2), "search-helper-" + i);
+            helpers[i].setDaemon(true);
+            helpers[i].start();
+        }
+
+        SearchResult result;
+        try {
+            result = searchers[0].search(game, limits, stopSignal, 1);
+        } finally {
+            stopSignal.set(true);
+        }
+
+        long nodes = result.getNodes();
+        for (int i = 1; i < helpers.length; i++) {
+            try {
+                helpers[i].join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (helperResults[i] != null)
+                nodes += helperResults[i].getNodes();
+        }
+        int[] iterationBestMoves = new int[result.getDepth() + 1];
+        long[] iterationNodes = new long[result.getDepth() + 1];
+        for (int depth = 1; depth <= result.getDepth(); depth++) {
+            iterationBestMoves[depth] = result.getBestMoveAt(depth);
+            iterationNodes[depth] = result.getNodesAt(depth);
+        }
+        return new SearchResult(result.getScore(), result.getDepth(), nodes,
+                System.currentTimeMillis() - start, result.getPrincipalVariation(), iterationBestMoves, iterationNodes);
+    }
+}
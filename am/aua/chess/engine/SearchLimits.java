@@ -0,0 +1,90 @@
+package am.aua.chess.engine;
+
+/**
+ * The SearchLimits class tells a search when to stop: after a maximum depth,
+ * after a time budget or after a number of searched nodes, whichever comes first.
+ * The first iteration of a search is always completed, so a move is found even with tiny limits.
+ */
+public final class SearchLimits {
+    /** The value of a limit that is not set. */
+    public static final long UNLIMITED = Long.MAX_VALUE;
+    /** The deepest depth a search can reach. */
+    public static final int MAX_DEPTH = 64;
+
+    private final int maxDepth;
+    private final long timeMillis;
+    private final long maxNodes;
+
+    /**
+     * Constructs new SearchLimits.
+     *
+     * @param maxDepth   the maximum depth in plies, at most MAX_DEPTH
+     * @param timeMillis the time budget in milliseconds, or UNLIMITED
+     * @param maxNodes   the maximum number of nodes, or UNLIMITED
+     * @throws IllegalArgumentException if a limit is not positive
+     */
+    public SearchLimits(int maxDepth, long timeMillis, long maxNodes) {
+        if (maxDepth < 1 || timeMillis < 1 || maxNodes < 1)
+            throw new IllegalArgumentException("Search limits should be positive.");
+        this.maxDepth = Math.min(maxDepth, MAX_DEPTH);
+        this.timeMillis = timeMillis;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Creates limits that only bound the depth.
+     *
+     * @param maxDepth the maximum depth in plies
+     * @return the limits
+     */
+    public static SearchLimits depth(int maxDepth) {
+        return new SearchLimits(maxDepth, UNLIMITED, UNLIMITED);
+    }
+
+    /**
+     * Creates limits that only bound the time.
+     *
+     * @param timeMillis the time budget in milliseconds
+     * @return the limits
+     */
+    public static SearchLimits time(long timeMillis) {
+        return new SearchLimits(MAX_DEPTH, timeMillis, UNLIMITED);
+    }
+
+    /**
+     * Creates limits that only bound the number of searched nodes.
+     *
+     * @param maxNodes the maximum number of nodes
+     * @return the limits
+     */
+    public static SearchLimits nodes(long maxNodes) {
+        return new SearchLimits(MAX_DEPTH, UNLIMITED, maxNodes);
+    }
+
+    /**
+     * Returns the maximum depth.
+     *
+     * @return the maximum depth in plies
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns the time budget.
+     *
+     * @return the time budget in milliseconds, or UNLIMITED
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * Returns the maximum number of nodes.
+     *
+     * @return the maximum number of nodes, or UNLIMITED
+     */
+    public long getMaxNodes() {
+        return maxNodes;
+    }
+}
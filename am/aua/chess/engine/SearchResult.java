@@ -0,0 +1,160 @@
+package am.aua.chess.engine;
+
+import am.aua.chess.core.Move;
+
+/**
+ * The SearchResult class holds the outcome of a search: the best move, its score
+ * and the principal variation, i.e. the line of play both sides are expected to follow.
+ */
+public final class SearchResult {
+    /** The best move value when the side to move has no legal move. */
+    public static final int NO_MOVE = 0;
+
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long elapsedMillis;
+    private final int[] principalVariation;
+    private final int[] iterationBestMoves;
+    private final long[] iterationNodes;
+
+    /**
+     * Constructs a new SearchResult.
+     *
+     * @param score              the score in centipawns from the side to move's point of view
+     * @param depth              the depth of the last completed iteration
+     * @param nodes              the number of searched nodes
+     * @param elapsedMillis      the time the search took
+     * @param principalVariation the packed moves of the principal variation, starting with the best move
+     * @param iterationBestMoves the best move of every completed iteration, indexed by its depth
+     * @param iterationNodes     the number of nodes searched until every iteration was completed, indexed by its depth
+     */
+    SearchResult(int score, int depth, long nodes, long elapsedMillis, int[] principalVariation,
+                 int[] iterationBestMoves, long[] iterationNodes) {
+        this.bestMove = principalVariation.length > 0 ? principalVariation[0] : NO_MOVE;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedMillis = elapsedMillis;
+        this.principalVariation = principalVariation;
+        this.iterationBestMoves = iterationBestMoves;
+        this.iterationNodes = iterationNodes;
+    }
+
+    /**
+     * Returns the best move.
+     *
+     * @return the packed best move, or NO_MOVE if there is no legal move
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Returns the score of the best move.
+     *
+     * @return the score in centipawns from the side to move's point of view
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Checks whether the score announces a forced mate, for either side.
+     *
+     * @return true if the score is a mate score, false otherwise
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Searcher.MATE_SCORE - SearchLimits.MAX_DEPTH * 2;
+    }
+
+    /**
+     * Returns the number of moves until mate, positive if the side to move mates.
+     *
+     * @return the number of moves until mate, or 0 if the score is not a mate score
+     */
+    public int getMateInMoves() {
+        if (!isMate())
+            return 0;
+        int plies = Searcher.MATE_SCORE - Math.abs(score);
+        return score > 0 ? (plies + 1) / 2 : -(plies / 2);
+    }
+
+    /**
+     * Returns the depth of the last completed iteration.
+     *
+     * @return the depth in plies
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the number of searched nodes.
+     *
+     * @return the number of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the best move found by the iteration of the given depth.
+     *
+     * @param depth the depth of the iteration, from 1 to getDepth()
+     * @return the packed best move of that iteration, or NO_MOVE if the iteration was not searched
+     */
+    public int getBestMoveAt(int depth) {
+        return depth >= 0 && depth < iterationBestMoves.length ? iterationBestMoves[depth] : NO_MOVE;
+    }
+
+    /**
+     * Returns the number of nodes searched from the start of the search until the iteration
+     * of the given depth was completed.
+     *
+     * @param depth the depth of the iteration, from 1 to getDepth()
+     * @return the number of nodes, or 0 if the iteration was not searched
+     */
+    public long getNodesAt(int depth) {
+        return depth >= 0 && depth < iterationNodes.length ? iterationNodes[depth] : 0;
+    }
+
+    /**
+     * Returns the time the search took.
+     *
+     * @return the elapsed time in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Returns the principal variation.
+     *
+     * @return a copy of the packed moves of the principal variation
+     */
+    public int[] getPrincipalVariation() {
+        return principalVariation.clone();
+    }
+
+    /**
+     * Returns a string representation of the result.
+     *
+     * @return the best move, the score, the depth and the principal variation
+     */
+    public String toString() {
+        if (bestMove == NO_MOVE)
+            return "No legal move";
+
+        StringBuilder result = new StringBuilder(Move.toString(bestMove));
+        if (isMate())
+            result.append(" (mate in ").append(getMateInMoves()).append(")");
+        else
+            result.append(String.format(" (%+.2f)", score / 100.0));
+        result.append(" depth ").append(depth).append(", ").append(nodes).append(" nodes, pv:");
+        for (int move : principalVariation)
+            result.append(' ').append(Move.toString(move));
+        return result.toString();
+    }
+}
@@ -0,0 +1,385 @@
+package am.aua.chess.engine;
+
+import am.aua.chess.core.Bitboards;
+import am.aua.chess.core.Chess;
+import am.aua.chess.core.Move;
+import am.aua.chess.core.MoveList;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The Searcher class picks the best move of a position with an iterative-deepening
+ * principal variation search (PVS), a variant of alpha-beta that searches every move after the first
+ * with a null window and only re-searches the moves that turn out better.
+ * The leaves are resolved by a quiescence search over captures and promotions, and over every evasion in check.
+ * Results are remembered in a transposition table, which may be shared with other Searchers.
+ * A Searcher keeps its own working copy of the game and is not safe to share between threads.
+ */
+public class Searcher {
+    /** The score of being checkmated now; mates further away score less. */
+    public static final int MATE_SCORE = 100000;
+    /** The maximum number of plies, including the quiescence search. */
+    private static final int MAX_PLY = 128;
+    /** A score bound above every reachable score. */
+    private static final int INFINITY = MATE_SCORE + 1;
+    /** The number of nodes between two checks of the limits. */
+    private static final int CHECK_INTERVAL = 1024;
+
+    private final TranspositionTable table;
+    private Chess chess;
+    private SearchLimits limits;
+    private AtomicBoolean stopSignal;
+    private long deadline;
+    private long nodes;
+    private boolean stopped;
+    private boolean canStop;
+
+    private final MoveList[] moveLists = new MoveList[MAX_PLY + 1];
+    private final int[][] moveScores = new int[MAX_PLY + 1][];
+    private final int[][] principalVariations = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] principalVariationLengths = new int[MAX_PLY + 1];
+    private final int[][] killerMoves = new int[MAX_PLY + 1][2];
+    private int[] previousVariation = new int[0];
+    // Whether every move from the root to the current node is the move of the previous variation.
+    private boolean followingVariation;
+
+    /**
+     * Constructs a new Searcher with a transposition table of the default size.
+     */
+    public Searcher() {
+        this(new TranspositionTable());
+    }
+
+    /**
+     * Constructs a new Searcher storing its results in the given transposition table.
+     *
+     * @param table the transposition table, which may be shared with other Searchers
+     */
+    public Searcher(TranspositionTable table) {
+        this.table = table;
+        for (int ply = 0; ply <= MAX_PLY; ply++) {
+            moveLists[ply] = new MoveList();
+            moveScores[ply] = new int[MoveList.DEFAULT_CAPACITY];
+        }
+    }
+
+    /**
+     * Searches the given position for the best move of the side to move.
+     * The given game is not modified.
+     *
+     * @param game   the position to search
+     * @param limits when to stop searching
+     * @return the best move found, with its score and principal variation
+     */
+    public SearchResult search(Chess game, SearchLimits limits) {
+        table.newSearch();
+        return this.search(game, limits, new AtomicBoolean(), 1);
+    }
+
+    /**
+     * Searches the given position as one of several threads sharing the transposition table.
+     * The table has to be prepared for the search by the caller.
+     *
+     * @param game       the position to search, which is not modified
+     * @param limits     when to stop searching
+     * @param stopSignal a flag that stops the search as soon as it is set, even in the first iteration
+     * @param firstDepth the depth of the first iteration
+     * @return the best move found, with its score and principal variation
+     */
+    SearchResult search(Chess game, SearchLimits limits, AtomicBoolean stopSignal, int firstDepth) {
+        long start = System.currentTimeMillis();
+        this.chess = game.clone();
+        this.limits = limits;
+        this.stopSignal = stopSignal;
+        this.deadline = limits.getTimeMillis() == SearchLimits.UNLIMITED
+                ? Long.MAX_VALUE : start + limits.getTimeMillis();
+        this.nodes = 0;
+        this.stopped = false;
+        this.canStop = false;
+        this.previousVariation = new int[0];
+        for (int[] killers : killerMoves)
+            killers[0] = killers[1] = SearchResult.NO_MOVE;
+
+        int[] bestVariation = new int[0];
+        int bestScore = 0;
+        int completedDepth = 0;
+        int[] iterationBestMoves = new int[limits.getMaxDepth() + 1];
+        long[] iterationNodes = new long[limits.getMaxDepth() + 1];
+        for (int depth = Math.min(firstDepth, limits.getMaxDepth()); depth <= limits.getMaxDepth(); depth++) {
+            followingVariation = true;
+            int score = this.search(depth, -INFINITY, INFINITY, 0);
+            if (stopped)
+                break;
+
+            completedDepth = depth;
+            bestScore = score;
+            bestVariation = new int[principalVariationLengths[0]];
+            System.arraycopy(principalVariations[0], 0, bestVariation, 0, bestVariation.length);
+            previousVariation = bestVariation;
+            iterationBestMoves[depth] = bestVariation.length > 0 ? bestVariation[0] : SearchResult.NO_MOVE;
+            iterationNodes[depth] = nodes;
+            canStop = true;
+
+            // Nothing more to find once a forced mate is seen or there is nothing to choose from.
+            if (Math.abs(score) >= MATE_SCORE - depth || bestVariation.length == 0)
+                break;
+        }
+        return new SearchResult(bestScore, completedDepth, nodes, System.currentTimeMillis() - start, bestVariation,
+                Arrays.copyOf(iterationBestMoves, completedDepth + 1), Arrays.copyOf(iterationNodes, completedDepth + 1));
+    }
+
+    /**
+     * Searches the current position to the given depth with principal variation search.
+     *
+     * @param depth the remaining depth in plies
+     * @param alpha the score the side to move is already guaranteed
+     * @param beta  the score the opponent is already guaranteed, negated
+     * @param ply   the distance from the root
+     * @return the score of the position from the side to move's point of view
+     */
+    private int search(int depth, int alpha, int beta, int ply) {
+        principalVariationLengths[ply] = 0;
+        boolean inCheck = chess.isKingUnderAttack(chess.getTurn());
+        if (inCheck)
+            depth++;
+        if (depth <= 0 || ply >= MAX_PLY)
+            return this.quiesce(alpha, beta, ply);
+
+        if (this.shouldStop())
+            return 0;
+        nodes++;
+
+        // Null-window nodes may be cut off by a stored score; principal variation nodes only take the move.
+        long key = chess.getZobristKey();
+        long entry = table.probe(key);
+        int hashMove = SearchResult.NO_MOVE;
+        if (entry != TranspositionTable.MISS) {
+            hashMove = TranspositionTable.moveOf(entry);
+            if (ply > 0 && beta - alpha == 1 && TranspositionTable.depthOf(entry) >= depth) {
+                int score = TranspositionTable.scoreOf(entry, ply);
+                int bound = TranspositionTable.boundOf(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                        || (bound == TranspositionTable.UPPER_BOUND && score <= alpha))
+                    return score;
+            }
+        }
+
+        MoveList moves = moveLists[ply];
+        int count = chess.generateLegalMoves(moves);
+        if (count == 0)
+            return inCheck ? -MATE_SCORE + ply : 0;
+        boolean onVariation = followingVariation;
+        int variationMove = onVariation ? this.principalVariationMove(ply) : SearchResult.NO_MOVE;
+        this.scoreMoves(moves, ply, variationMove != SearchResult.NO_MOVE ? variationMove : hashMove);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = SearchResult.NO_MOVE;
+        for (int i = 0; i < count; i++) {
+            int move = this.pickNextMove(moves, ply, i);
+            followingVariation = onVariation && move == variationMove;
+            chess.makeMove(move);
+            int score;
+            if (i == 0) {
+                score = -this.search(depth - 1, -beta, -alpha, ply + 1);
+            } else {
+                score = -this.search(depth - 1, -alpha - 1, -alpha, ply + 1);
+                if (score > alpha && score < beta)
+                    score = -this.search(depth - 1, -beta, -alpha, ply + 1);
+            }
+            chess.unmakeMove();
+            if (stopped)
+                return 0;
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    this.updatePrincipalVariation(ply, move);
+                    if (alpha >= beta) {
+                        if (!chess.isCapture(move))
+                            this.storeKiller(ply, move);
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = bestScore >= beta ? TranspositionTable.LOWER_BOUND
+                : bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+        table.store(key, bestMove, bestScore, depth, bound, ply);
+        return bestScore;
+    }
+
+    /**
+     * Resolves the captures and promotions of the current position, so that positions in the middle
+     * of an exchange are not scored. The side to move may also stand pat with the static score,
+     * unless it is in check: then every evasion is searched, and having none is checkmate.
+     *
+     * @param alpha the score the side to move is already guaranteed
+     * @param beta  the score the opponent is already guaranteed, negated
+     * @param ply   the distance from the root
+     * @return the score of the position from the side to move's point of view
+     */
+    private int quiesce(int alpha, int beta, int ply) {
+        principalVariationLengths[ply] = 0;
+        if (this.shouldStop())
+            return 0;
+        nodes++;
+
+        if (ply >= MAX_PLY)
+            return Evaluator.evaluate(chess);
+        MoveList moves = moveLists[ply];
+        int count;
+        if (chess.isKingUnderAttack(chess.getTurn())) {
+            count = chess.generateLegalMoves(moves);
+            if (count == 0)
+                return -MATE_SCORE + ply;
+        } else {
+            int standPat = Evaluator.evaluate(chess);
+            if (standPat >= beta)
+                return standPat;
+            if (standPat > alpha)
+                alpha = standPat;
+            count = chess.generateLegalCaptures(moves);
+        }
+        this.scoreMoves(moves, ply, SearchResult.NO_MOVE);
+        for (int i = 0; i < count; i++) {
+            int move = this.pickNextMove(moves, ply, i);
+            chess.makeMove(move);
+            int score = -this.quiesce(-beta, -alpha, ply + 1);
+            chess.unmakeMove();
+            if (stopped)
+                return 0;
+
+            if (score > alpha) {
+                alpha = score;
+                if (alpha >= beta)
+                    break;
+            }
+        }
+        return alpha;
+    }
+
+    /**
+     * Gives every move an ordering score: the given best move first, then captures
+     * by most valuable victim and least valuable attacker, promotions, and killer moves.
+     *
+     * @param moves    the moves to score
+     * @param ply      the distance from the root
+     * @param bestMove the move to try first, from the principal variation or the transposition table, or NO_MOVE
+     */
+    private void scoreMoves(MoveList moves, int ply, int bestMove) {
+        int[] scores = moveScores[ply];
+        if (scores.length < moves.size())
+            scores = moveScores[ply] = new int[moves.size()];
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int score;
+            if (move == bestMove) {
+                score = 1 << 30;
+            } else if (chess.isCapture(move)) {
+                int victim = chess.getPieceIndexAt(Move.destinationOf(move));
+                int victimValue = victim == Bitboards.NO_PIECE
+                        ? Evaluator.pieceValue(Bitboards.PAWN)
+                        : Evaluator.pieceValue(Bitboards.typeOf(victim));
+                int attacker = Bitboards.typeOf(chess.getPieceIndexAt(Move.originOf(move)));
+                score = (1 << 20) + victimValue * 8 - attacker;
+            } else if (Move.promotionOf(move) != Move.NO_PROMOTION) {
+                score = (1 << 19) + Move.promotionOf(move);
+            } else if (move == killerMoves[ply][0]) {
+                score = 1 << 18;
+            } else if (move == killerMoves[ply][1]) {
+                score = (1 << 18) - 1;
+            } else {
+                score = 0;
+            }
+            scores[i] = score;
+        }
+    }
+
+    /**
+     * Selects the best scored move among the moves not tried yet and swaps it into the given index.
+     *
+     * @param moves the scored moves
+     * @param ply   the distance from the root
+     * @param index the index of the next move to try
+     * @return the move to try next
+     */
+    private int pickNextMove(MoveList moves, int ply, int index) {
+        int[] scores = moveScores[ply];
+        int best = index;
+        for (int i = index + 1; i < moves.size(); i++)
+            if (scores[i] > scores[best])
+                best = i;
+
+        int move = moves.get(best);
+        if (best != index) {
+            moves.set(best, moves.get(index));
+            moves.set(index, move);
+            int score = scores[best];
+            scores[best] = scores[index];
+            scores[index] = score;
+        }
+        return move;
+    }
+
+    /**
+     * Returns the move of the previous iteration's principal variation at the given ply.
+     * It is only meaningful while the search is following that variation (see followingVariation).
+     *
+     * @param ply the distance from the root
+     * @return the move to try first, or NO_MOVE
+     */
+    private int principalVariationMove(int ply) {
+        return ply < previousVariation.length ? previousVariation[ply] : SearchResult.NO_MOVE;
+    }
+
+    /**
+     * Records a new best move at the given ply, followed by the best line found below it.
+     *
+     * @param ply  the distance from the root
+     * @param move the new best move
+     */
+    private void updatePrincipalVariation(int ply, int move) {
+        int[] variation = principalVariations[ply];
+        variation[0] = move;
+        int childLength = principalVariationLengths[ply + 1];
+        System.arraycopy(principalVariations[ply + 1], 0, variation, 1, childLength);
+        principalVariationLengths[ply] = childLength + 1;
+    }
+
+    /**
+     * Remembers a quiet move that caused a cutoff, to try it early in sibling positions.
+     *
+     * @param ply  the distance from the root
+     * @param move the quiet move
+     */
+    private void storeKiller(int ply, int move) {
+        if (killerMoves[ply][0] != move) {
+            killerMoves[ply][1] = killerMoves[ply][0];
+            killerMoves[ply][0] = move;
+        }
+    }
+
+    /**
+     * Checks the stop signal and the time and node limits every few nodes.
+     * The limits never stop the first iteration; the stop signal does.
+     *
+     * @return true if the search has to stop, false otherwise
+     */
+    private boolean shouldStop() {
+        if (stopped)
+            return true;
+        if ((nodes & (CHECK_INTERVAL - 1)) != 0)
+            return false;
+        if (stopSignal.get()
+                || (canStop && (nodes >= limits.getMaxNodes() || System.currentTimeMillis() >= deadline)))
+            stopped = true;
+        return stopped;
+    }
+}
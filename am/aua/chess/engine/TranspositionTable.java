@@ -0,0 +1,214 @@
+package am.aua.chess.engine;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * The TranspositionTable class remembers search results by Zobrist position key, so that positions
+ * reached again, by transposition or by the next iteration of iterative deepening, are not searched twice.
+ * <p>
+ * The table is a flat long array with two longs per entry: the data word and the key XOR-ed with
+ * the data word. Threads read and write entries without locks; an entry torn by concurrent writes
+ * fails the XOR check and is treated as a miss. Every long is accessed atomically (opaque mode),
+ * so no single word is ever half-written.
+ * <p>
+ * A slot is replaced by a result of at least the same depth, or by any result if the stored one
+ * comes from an earlier search, so deep results survive within a search.
+ */
+public final class TranspositionTable {
+    /** The bound of a score that is exact. */
+    public static final int EXACT = 1;
+    /** The bound of a score that is a lower bound (the search failed high). */
+    public static final int LOWER_BOUND = 2;
+    /** The bound of a score that is an upper bound (the search failed low). */
+    public static final int UPPER_BOUND = 3;
+    /** The value returned by probe when the position is not in the table. */
+    public static final long MISS = 0L;
+    /** The default size of a table in megabytes. */
+    public static final int DEFAULT_SIZE_MB = 16;
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int ENTRY_BYTES = 2 * Long.BYTES;
+
+    // The layout of the data word. The bound is never 0, so a valid data word is never MISS.
+    private static final int MOVE_BITS = 17;
+    private static final int SCORE_SHIFT = MOVE_BITS;
+    private static final int SCORE_BITS = 20;
+    private static final int DEPTH_SHIFT = SCORE_SHIFT + SCORE_BITS;
+    private static final int BOUND_SHIFT = DEPTH_SHIFT + 8;
+    private static final int GENERATION_SHIFT = BOUND_SHIFT + 2;
+
+    private final long[] slots;
+    private final int indexMask;
+    private final int sizeMegabytes;
+    private volatile int generation;
+
+    /**
+     * Constructs a new TranspositionTable of the default size.
+     */
+    public TranspositionTable() {
+        this(DEFAULT_SIZE_MB);
+    }
+
+    /**
+     * Constructs a new TranspositionTable using at most the given amount of memory.
+     * The number of entries is rounded down to a power of two.
+     *
+     * @param sizeMegabytes the size of the table in megabytes, between 1 and 1024
+     * @throws IllegalArgumentException if the size is out of range
+     */
+    public TranspositionTable(int sizeMegabytes) {
+        if (sizeMegabytes < 1 || sizeMegabytes > 1024)
+            throw new IllegalArgumentException("The table size should be between 1 and 1024 MB.");
+        long entries = Long.highestOneBit((long) sizeMegabytes * 1024 * 1024 / ENTRY_BYTES);
+        this.slots = new long[(int) (entries * 2)];
+        this.indexMask = (int) entries - 1;
+        this.sizeMegabytes = sizeMegabytes;
+    }
+
+    /**
+     * Returns the size of the table.
+     *
+     * @return the size in megabytes
+     */
+    public int getSizeMegabytes() {
+        return sizeMegabytes;
+    }
+
+    /**
+     * Marks the start of a new search. Entries of earlier searches become replaceable.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Removes every entry from the table. Must not run concurrently with a search.
+     */
+    public void clear() {
+        java.util.Arrays.fill(slots, 0L);
+    }
+
+    /**
+     * Looks up the given position.
+     *
+     * @param key the Zobrist key of the position
+     * @return the data word of the entry (decode it with moveOf, scoreOf, depthOf and boundOf), or MISS
+     */
+    public long probe(long key) {
+        int index = indexOf(key);
+        long data = (long) SLOTS.getOpaque(slots, index);
+        long check = (long) SLOTS.getOpaque(slots, index + 1);
+        return (check ^ data) == key ? data : MISS;
+    }
+
+    /**
+     * Stores a search result for the given position, unless a deeper result of the current search
+     * already occupies the slot.
+     *
+     * @param key   the Zobrist key of the position
+     * @param move  the best packed move found, or SearchResult.NO_MOVE
+     * @param score the score of the position
+     * @param depth the depth the position was searched to
+     * @param bound EXACT, LOWER_BOUND or UPPER_BOUND
+     * @param ply   the distance of the position from the root, to store mate scores relative to the position
+     */
+    public void store(long key, int move, int score, int depth, int bound, int ply) {
+        int index = indexOf(key);
+        long old = (long) SLOTS.getOpaque(slots, index);
+        int currentGeneration = generation;
+        if (old != MISS && generationOf(old) == currentGeneration && depthOf(old) > depth
+                && ((long) SLOTS.getOpaque(slots, index + 1) ^ old) != key)
+            return;
+
+        long data = (move & ((1L << MOVE_BITS) - 1))
+                | ((long) toStoredScore(score, ply) & ((1L << SCORE_BITS) - 1)) << SCORE_SHIFT
+                | (long) Math.max(0, Math.min(depth, 0xFF)) << DEPTH_SHIFT
+                | (long) bound << BOUND_SHIFT
+                | (long) currentGeneration << GENERATION_SHIFT;
+        SLOTS.setOpaque(slots, index, data);
+        SLOTS.setOpaque(slots, index + 1, key ^ data);
+    }
+
+    /**
+     * Returns the best move of a data word.
+     *
+     * @param data the data word returned by probe
+     * @return the packed move, or SearchResult.NO_MOVE
+     */
+    public static int moveOf(long data) {
+        return (int) (data & ((1L << MOVE_BITS) - 1));
+    }
+
+    /**
+     * Returns the score of a data word, as seen from a position at the given distance from the root.
+     *
+     * @param data the data word returned by probe
+     * @param ply  the distance of the position from the root
+     * @return the score
+     */
+    public static int scoreOf(long data, int ply) {
+        int stored = (int) (data << (64 - SCORE_SHIFT - SCORE_BITS) >> (64 - SCORE_BITS));
+        if (stored >= Searcher.MATE_SCORE - SearchLimits.MAX_DEPTH * 4)
+            return stored - ply;
+        if (stored <= -Searcher.MATE_SCORE + SearchLimits.MAX_DEPTH * 4)
+            return stored + ply;
+        return stored;
+    }
+
+    /**
+     * Returns the depth of a data word.
+     *
+     * @param data the data word returned by probe
+     * @return the depth the position was searched to
+     */
+    public static int depthOf(long data) {
+        return (int) ((data >>> DEPTH_SHIFT) & 0xFF);
+    }
+
+    /**
+     * Returns the bound of a data word.
+     *
+     * @param data the data word returned by probe
+     * @return EXACT, LOWER_BOUND or UPPER_BOUND
+     */
+    public static int boundOf(long data) {
+        return (int) ((data >>> BOUND_SHIFT) & 0x3);
+    }
+
+    /**
+     * Returns the search generation of a data word.
+     *
+     * @param data the data word
+     * @return the generation the entry was stored in
+     */
+    private static int generationOf(long data) {
+        return (int) ((data >>> GENERATION_SHIFT) & 0xFF);
+    }
+
+    /**
+     * Converts a mate score counted from the root into one counted from the stored position,
+     * so that it stays correct when the position is reached at a different distance from the root.
+     *
+     * @param score the score counted from the root
+     * @param ply   the distance of the position from the root
+     * @return the score to store
+     */
+    private static int toStoredScore(int score, int ply) {
+        if (score >= Searcher.MATE_SCORE - SearchLimits.MAX_DEPTH * 4)
+            return score + ply;
+        if (score <= -Searcher.MATE_SCORE + SearchLimits.MAX_DEPTH * 4)
+            return score - ply;
+        return score;
+    }
+
+    /**
+     * Returns the slot index of the data word of the given key.
+     *
+     * @param key the Zobrist key
+     * @return the index of the first long of the entry
+     */
+    private int indexOf(long key) {
+        return ((int) (key ^ (key >>> 32)) & indexMask) << 1;
+    }
+}
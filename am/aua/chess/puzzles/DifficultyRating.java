@@ -0,0 +1,84 @@
+package am.aua.chess.puzzles;
+
+/**
+ * The DifficultyRating class holds the search statistics a puzzle was rated from, and the rating derived from them.
+ */
+public final class DifficultyRating {
+    private final int solutionDepth;
+    private final long nodesToSolve;
+    private final double branchingFactor;
+    private final int rating;
+
+    /**
+     * Constructs a new DifficultyRating, deriving the rating from the statistics: 100 points per ply
+     * of the solution depth, per doubling of the nodes to solve and per doubling of the branching factor,
+     * bounded to 1..Puzzle.MAX_RATING.
+     *
+     * @param solutionDepth   the depth in plies from which the search keeps choosing the solution
+     * @param nodesToSolve    the number of nodes searched until that depth was completed
+     * @param branchingFactor the average number of legal moves of the solving side along the solution
+     */
+    DifficultyRating(int solutionDepth, long nodesToSolve, double branchingFactor) {
+        this.solutionDepth = solutionDepth;
+        this.nodesToSolve = nodesToSolve;
+        this.branchingFactor = branchingFactor;
+        double points = 100 * (solutionDepth + log2(Math.max(1, nodesToSolve)) + log2(Math.max(1, branchingFactor)));
+        this.rating = (int) Math.max(1, Math.min(Puzzle.MAX_RATING, Math.round(points)));
+    }
+
+    /**
+     * Returns the base 2 logarithm of a number.
+     *
+     * @param x the number
+     * @return its logarithm
+     */
+    private static double log2(double x) {
+        return Math.log(x) / Math.log(2);
+    }
+
+    /**
+     * Returns the depth from which the search keeps choosing the solution.
+     *
+     * @return the depth in plies, one more than the searched depth if the solution was never settled on
+     */
+    public int getSolutionDepth() {
+        return solutionDepth;
+    }
+
+    /**
+     * Returns the number of nodes searched until the solution depth was completed.
+     *
+     * @return the number of nodes
+     */
+    public long getNodesToSolve() {
+        return nodesToSolve;
+    }
+
+    /**
+     * Returns the average number of legal moves of the solving side along the solution.
+     *
+     * @return the branching factor
+     */
+    public double getBranchingFactor() {
+        return branchingFactor;
+    }
+
+    /**
+     * Returns the rating, higher for harder puzzles.
+     *
+     * @return the rating, between 1 and Puzzle.MAX_RATING
+     */
+    public int getRating() {
+        return rating;
+    }
+
+    /**
+     * Returns a string representation of the rating.
+     *
+     * @return the rating with the statistics it was derived from
+     */
+    public String toString() {
+        return String.format("rating %d (solved at depth %d, %d nodes, branching factor %.1f)",
+                rating, solutionDepth, nodesToSolve, branchingFactor);
+    }
+}
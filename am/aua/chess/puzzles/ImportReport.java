@@ -0,0 +1,112 @@
+package am.aua.chess.puzzles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The ImportReport class summarizes an import of puzzles: how many were read, added,
+ * skipped as duplicates and rejected as malformed. Only the first MAX_ERRORS error messages
+ * are kept, so that the report stays small however large the imported file is.
+ */
+public class ImportReport {
+    /** The maximum number of error messages kept. */
+    public static final int MAX_ERRORS = 100;
+
+    private long read;
+    private long added;
+    private long duplicates;
+    private long malformed;
+    private final List<String> errors = new ArrayList<>();
+
+    /**
+     * Counts a puzzle that was added.
+     */
+    void countAdded() {
+        this.read++;
+        this.added++;
+    }
+
+    /**
+     * Counts a puzzle that was skipped because an equal puzzle already exists.
+     */
+    void countDuplicate() {
+        this.read++;
+        this.duplicates++;
+    }
+
+    /**
+     * Moves a puzzle counted as added to the duplicates, once an equal puzzle read before it is found.
+     */
+    void countLaterDuplicate() {
+        this.added--;
+        this.duplicates++;
+    }
+
+    /**
+     * Counts a malformed record and keeps its error message.
+     * @param line the line number where the record starts
+     * @param message the reason the record was rejected
+     */
+    void countMalformed(long line, String message) {
+        this.read++;
+        this.malformed++;
+        if (this.errors.size() < MAX_ERRORS)
+            this.errors.add("line " + line + ": " + message);
+    }
+
+    /**
+     * Returns the number of records read.
+     * @return the number of records read
+     */
+    public long getRead() {
+        return read;
+    }
+
+    /**
+     * Returns the number of puzzles added.
+     * @return the number of puzzles added
+     */
+    public long getAdded() {
+        return added;
+    }
+
+    /**
+     * Returns the number of puzzles skipped as duplicates.
+     * @return the number of duplicates
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Returns the number of malformed records.
+     * @return the number of malformed records
+     */
+    public long getMalformed() {
+        return malformed;
+    }
+
+    /**
+     * Returns the error messages of the first malformed records.
+     * @return an unmodifiable list of at most MAX_ERRORS messages
+     */
+    public List<String> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Returns a string representation of the report.
+     * @return the counts, followed by the kept error messages, one per line
+     */
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        result.append(read).append(" records read: ").append(added).append(" added, ")
+                .append(duplicates).append(" duplicates, ").append(malformed).append(" malformed");
+        for (String error : errors)
+            result.append("\n  ").append(error);
+        if (malformed > errors.size())
+            result.append("\n  ...");
+        return result.toString();
+    }
+}
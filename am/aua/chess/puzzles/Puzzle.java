@@ -1,5 +1,6 @@
 package am.aua.chess.puzzles;
 
+import am.aua.chess.core.Bitboards;
 import am.aua.chess.core.Chess;
 import am.aua.chess.utils.MalformedPuzzleException;
 
@@ -15,10 +16,18 @@ public final class Puzzle implements Comparable<Puzzle>{
         EASY, MEDIUM, HARD, UNSPECIFIED
     }
 
+    /** The largest mate depth a puzzle can record. */
+    public static final int MAX_MATE_DEPTH = 255;
+    /** The largest rating a puzzle can record. */
+    public static final int MAX_RATING = 0xFFFF;
+
     private Difficulty difficulty;
+    private int rating;
     private Chess.PieceColor turn;
     private String arrangement;
     private String description;
+    private int mateDepth;
+    private String solution = "";
 
     /**
      * Constructs a new Puzzle object with the given arrangement and description.
@@ -32,6 +41,27 @@ public final class Puzzle implements Comparable<Puzzle>{
         this.description = description;
     }
 
+    /**
+     * Constructs a new Puzzle object from already validated details, as decoded from the binary database.
+     *
+     * @param arrangement the chess board arrangement as a string of 64 characters
+     * @param turn the turn color
+     * @param difficulty the difficulty level
+     * @param rating the numeric difficulty within the difficulty level, or 0 if not rated
+     * @param description the description of the puzzle
+     * @param mateDepth the number of moves of the shortest forced mate, or 0 if unknown
+     * @param solution the moves of the solution separated by spaces, or an empty string if unknown
+     */
+    Puzzle(String arrangement, Chess.PieceColor turn, Difficulty difficulty, int rating, String description, int mateDepth, String solution) {
+        this.arrangement = arrangement;
+        this.turn = turn;
+        this.difficulty = difficulty;
+        this.rating = rating;
+        this.description = description;
+        this.mateDepth = mateDepth;
+        this.solution = solution;
+    }
+
     /**
      * Copy Constructor for creating a Puzzle object by copying another Puzzle object.
      * @param that the Puzzle object to be copied
@@ -42,7 +72,10 @@ public final class Puzzle implements Comparable<Puzzle>{
         this.arrangement = that.arrangement;
         this.turn = that.turn;
         this.difficulty = that.difficulty;
+        this.rating = that.rating;
         this.description = that.description;
+        this.mateDepth = that.mateDepth;
+        this.solution = that.solution;
     }
 
     /**
@@ -81,6 +114,51 @@ public final class Puzzle implements Comparable<Puzzle>{
         return difficulty;
     }
 
+    /**
+     * Gets the rating of the puzzle: a numeric difficulty derived by the PuzzleRater from search statistics,
+     * higher for harder puzzles of the same difficulty level. The rating is not part of the identity of a puzzle.
+     *
+     * @return the rating, or 0 if not rated
+     */
+    public int getRating() {
+        return rating;
+    }
+
+    /**
+     * Gets the number of moves of the shortest forced mate, as found by the mate solver.
+     *
+     * @return the mate depth, or 0 if unknown
+     */
+    public int getMateDepth() {
+        return mateDepth;
+    }
+
+    /**
+     * Gets the solution of the puzzle: the moves of the mating line, both sides alternating,
+     * separated by spaces, e.g. "D1H5 G8F6 H5F7".
+     *
+     * @return the solution, or an empty string if unknown
+     */
+    public String getSolution() {
+        return solution;
+    }
+
+    /**
+     * Gets the material signature of the puzzle: the white pieces, then "v", then the black pieces,
+     * each side ordered king, queen, rooks, bishops, knights and pawns, e.g. "KRPPvKR".
+     *
+     * @return the material signature
+     */
+    public String getMaterialSignature() {
+        int[] counts = new int[Bitboards.PIECE_INDICES];
+        for (int i = 0; i < this.arrangement.length(); i++) {
+            int pieceIndex = Bitboards.pieceIndexOf(this.arrangement.charAt(i));
+            if (pieceIndex != Bitboards.NO_PIECE)
+                counts[pieceIndex]++;
+        }
+        return PuzzleIndex.signatureOf(PuzzleIndex.signatureKey(counts));
+    }
+
     private void parsePuzzleDetails(String boardDetails) throws MalformedPuzzleException {
         String[] splittedDetails = getDetails(boardDetails);
         if (!splittedDetails[2].equalsIgnoreCase("easy") && !splittedDetails[2].equalsIgnoreCase("medium") && !splittedDetails[2].equalsIgnoreCase("hard")) {
@@ -90,12 +168,32 @@ public final class Puzzle implements Comparable<Puzzle>{
         this.arrangement = splittedDetails[0];
         this.turn = Chess.PieceColor.valueOf(splittedDetails[1].toUpperCase());
         this.difficulty = Difficulty.valueOf(splittedDetails[2].toUpperCase());
+        if (splittedDetails.length > 3) {
+            try {
+                this.mateDepth = Integer.parseInt(splittedDetails[3].trim());
+            } catch (NumberFormatException e) {
+                throw new MalformedPuzzleException("The given Mate depth should be a number.");
+            }
+            if (this.mateDepth < 0 || this.mateDepth > MAX_MATE_DEPTH)
+                throw new MalformedPuzzleException("The given Mate depth should be between 0 and " + MAX_MATE_DEPTH + ".");
+        }
+        if (splittedDetails.length > 4)
+            this.solution = splittedDetails[4].trim();
+        if (splittedDetails.length > 5) {
+            try {
+                this.rating = Integer.parseInt(splittedDetails[5].trim());
+            } catch (NumberFormatException e) {
+                throw new MalformedPuzzleException("The given Rating should be a number.");
+            }
+            if (this.rating < 0 || this.rating > MAX_RATING)
+                throw new MalformedPuzzleException("The given Rating should be between 0 and " + MAX_RATING + ".");
+        }
     }
 
     private static String[] getDetails(String boardDetails) throws MalformedPuzzleException {
         String[] splittedDetails = boardDetails.split(",");
-        if (splittedDetails.length != 3) {
-            throw new MalformedPuzzleException("The given Puzzle Should contain 3 parts: Arrangement(64 length), Turn, and Difficulty.");
+        if (splittedDetails.length < 3 || splittedDetails.length > 6) {
+            throw new MalformedPuzzleException("The given Puzzle Should contain 3 parts: Arrangement(64 length), Turn, and Difficulty, optionally followed by the Mate depth, the Solution and the Rating.");
         }
         if (splittedDetails[0].length() != 64) {
             throw new MalformedPuzzleException("The given Arrangement should be 64 characters long.");
@@ -126,7 +224,8 @@ public final class Puzzle implements Comparable<Puzzle>{
     }
 
     /**
-     * Compares this puzzle with the specified puzzle for order.
+     * Compares this puzzle with the specified puzzle for order: by difficulty,
+     * then by side to move (white first), then by arrangement.
      * 
      * @param that the puzzle to be compared
      * @return a negative integer, zero, or a positive integer as this puzzle is less than, equal to, or greater than the specified puzzle
@@ -154,7 +253,8 @@ public final class Puzzle implements Comparable<Puzzle>{
     }
 
     /**
-     * Checks if this puzzle is equal to the specified object.
+     * Checks if this puzzle is equal to the specified object: a puzzle with the same difficulty,
+     * side to move and arrangement, whatever their ratings, mate depths and descriptions.
      * 
      * @param that the object to compare
      * @return true if the specified object is equal to this puzzle, false otherwise
@@ -172,11 +272,26 @@ public final class Puzzle implements Comparable<Puzzle>{
         return false;
     }
 
+    /**
+     * Returns a hash code consistent with equals, computed from the difficulty, the turn and the arrangement.
+     *
+     * @return the hash code of the puzzle
+     */
+    public int hashCode(){
+        return (31 * this.difficulty.ordinal() + this.turn.ordinal()) * 31 + this.arrangement.hashCode();
+    }
+
     /**
      * Returns a string representation of the puzzle.
+     * The mate depth, the solution and the rating are only written when known.
      */
     public String toString(){
-        return this.arrangement + "," + this.turn + "," + this.difficulty + "\n" + this.description;
+        String details = this.arrangement + "," + this.turn + "," + this.difficulty;
+        if (this.rating > 0)
+            details += "," + this.mateDepth + "," + this.solution + "," + this.rating;
+        else if (this.mateDepth > 0 || !this.solution.isEmpty())
+            details += "," + this.mateDepth + (this.solution.isEmpty() ? "" : "," + this.solution);
+        return details + "\n" + this.description;
     }
 
 }
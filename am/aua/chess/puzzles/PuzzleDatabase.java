@@ -3,22 +3,60 @@ package am.aua.chess.puzzles;
 import am.aua.chess.utils.MalformedPuzzleException;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ObjIntConsumer;
 
 /**
  * The PuzzleDatabase class represents a database of chess puzzles.
  * It provides methods for loading puzzles from a file, saving puzzles to a file,
  * retrieving puzzles by index, and adding puzzles from a file to the database.
+ * The puzzles are read from a memory-mapped binary copy of the text database, and each one is only
+ * decoded when it is retrieved.
+ * <p>
+ * Added puzzles are appended to a journal, forced to disk once per batch, so that adding a puzzle costs
+ * a small append rather than a rewrite of the database. Once the journal holds COMPACTION_THRESHOLD puzzles,
+ * or when more are added at once, it is compacted: the puzzles are merged into a new binary copy, the
+ * database file is rewritten from it, and the journal is emptied. Every step replaces its file atomically,
+ * and puzzles found again in the journal after a crash are skipped as duplicates, so no step loses a puzzle.
+ * <p>
+ * The database is safe for concurrent use. Readers work on an immutable PuzzleSnapshot without locking,
+ * while additions and saves are serialized and publish a new snapshot atomically when they complete;
+ * readers still holding the previous snapshot keep reading the previous file.
  */
 public class PuzzleDatabase {
     public static final String DATABASE_PATH = "am/aua/chess/puzzles/database.txt"; // Path to the database file
-    private ArrayList<Puzzle> puzzles;
+    public static final String BINARY_DATABASE_PATH = "am/aua/chess/puzzles/database.bin"; // Path to the binary copy, converted from the database file
+    public static final String JOURNAL_PATH = "am/aua/chess/puzzles/database.journal"; // Path to the journal of the puzzles added since the last compaction
+    public static final int COMPACTION_THRESHOLD = 4096; // Number of journaled puzzles that triggers a compaction
+    private final Path databasePath;
+    private final Path binaryPath;
+    private final Path journalPath;
+    private volatile PuzzleSnapshot snapshot;
+    private PuzzleJournal journal;
 
     /**
-     * Constructs a new PuzzleDatabase object and loads puzzles from the database file.
+     * Constructs a new PuzzleDatabase object and loads puzzles from the database file at DATABASE_PATH.
      */
     public PuzzleDatabase(){
+        this(DATABASE_PATH, BINARY_DATABASE_PATH, JOURNAL_PATH);
+    }
+
+    /**
+     * Constructs a new PuzzleDatabase object on the given files and loads puzzles from the database file.
+     * @param databasePath the path to the database file
+     * @param binaryPath the path to the binary copy, created when missing
+     * @param journalPath the path to the journal, created when missing
+     */
+    public PuzzleDatabase(String databasePath, String binaryPath, String journalPath){
+        this.databasePath = Paths.get(databasePath);
+        this.binaryPath = Paths.get(binaryPath);
+        this.journalPath = Paths.get(journalPath);
         this.load();
     }
 
@@ -26,30 +64,40 @@ public class PuzzleDatabase {
      * Loads puzzles from the database file.
      * The database file should start with a line containing a single integer representing the number of puzzles.
      * Each puzzle should be represented by two lines: the first line contains the arrangements and the second line contains the description.
-     * Puzzles are stored in the puzzles ArrayList and sorted based on their natural order.
+     * When the binary copy is missing or older than the database file, the database file is converted into it first,
+     * with the puzzles sorted based on their natural order; malformed puzzles are reported and skipped.
+     * The binary copy is then mapped into memory, and the puzzles of the journal are added to it.
      * If an error occurs during loading, an appropriate error message is printed and the program exits.
      */
-    public void load(){
+    public synchronized void load(){
         try {
-            Scanner dbReader = new Scanner(new File(PuzzleDatabase.DATABASE_PATH));
-            int puzzleCount = dbReader.nextInt();
-            dbReader.nextLine();
-            this.puzzles = new ArrayList<>(puzzleCount);
-            for (int i = 0; i < puzzleCount; i++){
-                String arrangements =  dbReader.nextLine();
-                String description = dbReader.nextLine();
-                this.puzzles.add(new Puzzle(arrangements, description));
+            Path text = this.databasePath;
+            Path binary = this.binaryPath;
+            if (PuzzleFile.isStale(text, binary)) {
+                ImportReport report = PuzzleImporter.convert(text, binary);
+                if (report.getMalformed() > 0)
+                    System.out.println("Some puzzles of the database file were skipped: " + report);
             }
-            this.puzzles.sort(Puzzle::compareTo);
-            dbReader.close();
-        }
-        catch (MalformedPuzzleException e){
-            System.out.println("The content of the database file should start with a line of single integer.");
+            this.snapshot = new PuzzleSnapshot(new PuzzleFile(binary));
+
+            if (this.journal != null)
+                this.journal.close();
+            this.journal = new PuzzleJournal(this.journalPath);
+            this.publish(this.journal.recover());
         }
         catch (Exception e){
             System.out.println("An error occurred: " + e.getMessage());
             System.exit(-1);
         }
+        this.compactIfFull();
+    }
+
+    /**
+     * Returns the current snapshot of the database, to read several puzzles from the same version of it.
+     * @return the current snapshot
+     */
+    public PuzzleSnapshot getSnapshot(){
+        return this.snapshot;
     }
 
     /**
@@ -57,24 +105,29 @@ public class PuzzleDatabase {
      * @return the number of puzzles in the database
      */
     public int getSize(){
-        return this.puzzles.size();
+        return this.snapshot.getSize();
     }
 
     /**
-     * Saves the puzzles in the database to the database file.
+     * Saves the puzzles in the database.
+     * Added puzzles are already durable in the journal, so the database file is not rewritten; the journal
+     * is only compacted into it when it holds COMPACTION_THRESHOLD puzzles, e.g. after an earlier compaction failed.
      * If an error occurs during saving, an appropriate error message is printed.
      */
-    public void save(){
-        try {
-            PrintWriter outputStream = new PrintWriter(new FileOutputStream(DATABASE_PATH, false));
-            outputStream.println(this.getSize());
-            for (Puzzle puzzle: this.puzzles){
-                outputStream.println(puzzle);
-            }
-            outputStream.close( );
+    public synchronized void save(){
+        this.compactIfFull();
+    }
+
+    /**
+     * Compacts the journal: merges its puzzles into the binary copy, rewrites the database file from it and empties the journal.
+     * If an error occurs during the compaction, an appropriate error message is printed and the puzzles stay in the journal.
+     */
+    public synchronized void compact(){
+        try (PuzzleImporter importer = this.newImporter(this.snapshot)) {
+            this.compact(importer);
         }
-        catch (Exception e){
-            System.out.println("Something went wrong, puzzles not saved: " + e.getMessage());
+        catch (IOException e){
+            System.out.println("Something went wrong, puzzles not compacted: " + e.getMessage());
         }
     }
 
@@ -85,39 +138,258 @@ public class PuzzleDatabase {
      * @throws IndexOutOfBoundsException if the index is out of range (index < 0 || index >= getSize())
      */
     public Puzzle getPuzzle(int index){
-        if (index>=0 && index<this.getSize()){
-            return this.puzzles.get(index);
+        return this.snapshot.getPuzzle(index);
+    }
+
+    /**
+     * Counts the puzzles matching the given query in the current snapshot.
+     * @param query the difficulty, side to move, material signature and ratings to match
+     * @return the number of matching puzzles
+     * @see PuzzleSnapshot#countPuzzles(PuzzleQuery)
+     */
+    public int countPuzzles(PuzzleQuery query){
+        return this.snapshot.countPuzzles(query);
+    }
+
+    /**
+     * Retrieves one page of the puzzles matching the given query in the current snapshot.
+     * @param query the difficulty, side to move, material signature and ratings to match, and the order to serve them in
+     * @param page the number of the page, starting from 0
+     * @param pageSize the maximum number of puzzles per page
+     * @return the puzzles of the page, empty if the page is past the last matching puzzle
+     * @throws IllegalArgumentException if the page is negative or the page size is not positive
+     * @see PuzzleSnapshot#findPuzzles(PuzzleQuery, int, int)
+     */
+    public List<Puzzle> findPuzzles(PuzzleQuery query, int page, int pageSize){
+        return this.snapshot.findPuzzles(query, page, pageSize);
+    }
+
+    /**
+     * Retrieves a puzzle matching the given query in the current snapshot, picked uniformly at random.
+     * @param query the difficulty, side to move, material signature and ratings to match
+     * @param random the source of randomness
+     * @return a matching puzzle, or null if no puzzle matches
+     * @see PuzzleSnapshot#getRandomPuzzle(PuzzleQuery, Random)
+     */
+    public Puzzle getRandomPuzzle(PuzzleQuery query, Random random){
+        return this.snapshot.getRandomPuzzle(query, random);
+    }
+
+    /**
+     * Adds a puzzle to the database, unless an equal puzzle already exists.
+     * The puzzle is appended to the journal and forced to disk before this method returns.
+     * @param puzzle the puzzle to add
+     * @return true if the puzzle was added, false if it already exists or could not be written
+     * @throws MalformedPuzzleException if the arrangement of the puzzle contains a character that is not a piece
+     */
+    public synchronized boolean addPuzzle(Puzzle puzzle) throws MalformedPuzzleException {
+        if (!PuzzleFile.encode(puzzle, new byte[PuzzleFile.RECORD_BYTES]))
+            throw new MalformedPuzzleException("The given Arrangement contains a character that is not a piece.");
+        if (this.snapshot.contains(puzzle))
+            return false;
+        try {
+            this.append(List.of(puzzle));
         }
-        else{
-            throw new IndexOutOfBoundsException("No puzzle available at index " + index);
+        catch (IOException e){
+            System.out.println("An error occurred, the puzzle was not added: " + e.getMessage());
+            return false;
         }
+        this.compactIfFull();
+        return true;
     }
 
     /**
      * Adds puzzles from a file to the database.
      * Each puzzle in the file should be represented by two lines: the first line contains the arrangements and the second line contains the description.
-     * If a puzzle with the same arrangements and description already exists in the database, it will not be added.
+     * If a puzzle with the same arrangements already exists in the database, it will not be added.
+     * The file is streamed, so it may be arbitrarily large; malformed puzzles are reported and skipped.
+     * The added puzzles take their place in the natural order of the database. They are appended to the journal
+     * in a single batch, unless the journal would then hold COMPACTION_THRESHOLD puzzles, in which case they are
+     * compacted into the database file along with the journal.
+     * Readers are not blocked during the import and see the added puzzles once it is complete.
+     * If the file cannot be read, an appropriate error message is printed and no puzzle is added.
      * @param filePath the path to the file containing the puzzles to add
+     * @return the report of the import, with the number of added, duplicate and malformed puzzles
      */
-    public void addPuzzlesFromFile(String filePath){
+    public synchronized ImportReport addPuzzlesFromFile(String filePath){
+        PuzzleSnapshot current = this.snapshot;
+        try (PuzzleImporter importer = this.newImporter(current);
+             BufferedReader reader = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8)) {
+            importer.exclude(current.getPending());
+            importer.readPuzzles(reader);
+
+            if (importer.isBuffered() && current.getPending().length + importer.getBuffered().size() < COMPACTION_THRESHOLD)
+                this.append(importer.getBuffered());
+            else
+                this.compact(importer);
+            return importer.getReport();
+        }
+        catch (IOException e){
+            System.out.println("An error occurred, no puzzles were added: " + e.getMessage());
+            return new ImportReport();
+        }
+    }
+
+    /**
+     * Searches every puzzle for a forced mate of the side to move, and records the minimal mate depth and the mating line
+     * of each solved puzzle in the database. The puzzles are solved in batches of PuzzleSolver.BATCH_SIZE and written
+     * to a new binary copy, together with the puzzles of the journal; the database file is then rewritten from it
+     * and the journal is emptied, as in a compaction.
+     * If an error occurs, an appropriate error message is printed and the database is left as it was.
+     * @param solver the solver of the puzzles
+     * @return the report of the search
+     */
+    public synchronized SolveReport solveMates(PuzzleSolver solver){
+        SolveReport report = new SolveReport();
         try {
-            Scanner inputStream = new Scanner(new File(filePath));
-            while (inputStream.hasNextLine()){
-                Puzzle puzzle = new Puzzle(inputStream.nextLine(), inputStream.nextLine());
-                if (!this.puzzles.contains(puzzle))
-                    this.puzzles.add(puzzle);
+            this.rewrite(PuzzleSolver.BATCH_SIZE, (batch, from) -> report.add(solver.solve(batch, from)));
+        }
+        catch (IOException e){
+            System.out.println("An error occurred, the puzzles were not tagged: " + e.getMessage());
+        }
+        return report;
+    }
+
+    /**
+     * Rates the difficulty of every puzzle that is not rated yet. The puzzles are rated in batches of
+     * PuzzleRater.BATCH_SIZE and written to a new binary copy, together with the puzzles of the journal;
+     * the database file is then rewritten from it and the journal is emptied, as in a compaction.
+     * If an error occurs, an appropriate error message is printed and the database is left as it was.
+     * @param rater the rater of the puzzles
+     * @return the report of the rating
+     */
+    public synchronized RatingReport rateDifficulties(PuzzleRater rater){
+        RatingReport report = new RatingReport();
+        try {
+            this.rewrite(PuzzleRater.BATCH_SIZE, (batch, from) -> report.add(rater.rate(batch, from)));
+        }
+        catch (IOException e){
+            System.out.println("An error occurred, the puzzles were not rated: " + e.getMessage());
+        }
+        return report;
+    }
+
+    /**
+     * Rewrites every puzzle of the database after passing it through a transformation, in batches: the transformed
+     * puzzles are written to a new binary copy, together with the puzzles of the journal, which is then published;
+     * the database file is rewritten from it and the journal is emptied, as in a compaction.
+     * @param batchSize the number of puzzles given to the transformation at once
+     * @param transformation the transformation, given each batch with the index of its first puzzle, which may modify the puzzles in place
+     * @throws IOException if a file cannot be written, in which case the database is left as it was
+     */
+    private void rewrite(int batchSize, ObjIntConsumer<Puzzle[]> transformation) throws IOException {
+        PuzzleSnapshot current = this.snapshot;
+        PuzzleFile file = current.getFile();
+        try (PuzzleImporter importer = new PuzzleImporter(null, this.binaryPath,
+                file.getSourceModified(), file.getSourceLength(), false)) {
+            for (int from = 0; from < current.getSize(); from += batchSize) {
+                Puzzle[] batch = new Puzzle[Math.min(batchSize, current.getSize() - from)];
+                for (int i = 0; i < batch.length; i++)
+                    batch[i] = current.getPuzzle(from + i);
+                transformation.accept(batch, from);
+                for (Puzzle puzzle : batch)
+                    importer.include(puzzle);
             }
-            inputStream.close();
+            importer.finish();
+            this.snapshot = new PuzzleSnapshot(new PuzzleFile(this.binaryPath));
+            this.writeText(this.snapshot);
+            this.journal.clear();
         }
-        catch (Exception e){
-            System.out.println("An error occurred: " + e.getMessage());
-            System.exit(-1);
+    }
+
+    /**
+     * Creates an importer that merges puzzles into the binary copy of the given snapshot.
+     * @param current the snapshot to add puzzles to
+     * @return the importer
+     */
+    private PuzzleImporter newImporter(PuzzleSnapshot current){
+        PuzzleFile file = current.getFile();
+        return new PuzzleImporter(file, this.binaryPath, file.getSourceModified(), file.getSourceLength(), true);
+    }
+
+    /**
+     * Appends new puzzles to the journal as one batch, then publishes them.
+     * @param puzzles the puzzles to add, none of them already in the database
+     * @throws IOException if the journal cannot be written, in which case no puzzle is added
+     */
+    private void append(List<Puzzle> puzzles) throws IOException {
+        this.journal.append(puzzles);
+        this.publish(puzzles);
+    }
+
+    /**
+     * Publishes a snapshot with the given puzzles added to the pending ones, skipping those already in the database.
+     * @param puzzles the puzzles to add, in any order
+     */
+    private void publish(List<Puzzle> puzzles){
+        PuzzleSnapshot current = this.snapshot;
+        List<Puzzle> added = new ArrayList<>(puzzles.size());
+        for (Puzzle puzzle : puzzles)
+            if (!current.contains(puzzle))
+                added.add(puzzle);
+        added.sort(Puzzle::compareTo);
+        for (int i = added.size() - 1; i > 0; i--)
+            if (added.get(i).equals(added.get(i - 1)))
+                added.remove(i);
+        if (!added.isEmpty())
+            this.snapshot = new PuzzleSnapshot(current, added);
+    }
+
+    /**
+     * Compacts the journal if it holds COMPACTION_THRESHOLD puzzles.
+     * If an error occurs during the compaction, an appropriate error message is printed and the puzzles stay in the journal.
+     */
+    private void compactIfFull(){
+        if (this.snapshot.getPending().length >= COMPACTION_THRESHOLD)
+            this.compact();
+    }
+
+    /**
+     * Merges the puzzles of the journal and of an import into a new binary copy, publishes it,
+     * rewrites the database file from it and finally empties the journal.
+     * @param importer the importer of the binary copy, holding the imported puzzles if any
+     * @throws IOException if a file cannot be written
+     */
+    private void compact(PuzzleImporter importer) throws IOException {
+        for (Puzzle puzzle : this.snapshot.getPending())
+            importer.include(puzzle);
+        importer.finish();
+        this.snapshot = new PuzzleSnapshot(new PuzzleFile(this.binaryPath));
+        this.writeText(this.snapshot);
+        this.journal.clear();
+    }
+
+    /**
+     * Writes the puzzles of a snapshot to the database file, and marks the binary copy as up to date with it.
+     * The puzzles are written to a temporary file that atomically replaces the database file when complete,
+     * so a failed write leaves the previous database file intact.
+     * @param current the snapshot to write
+     * @throws IOException if the database file cannot be written
+     */
+    private void writeText(PuzzleSnapshot current) throws IOException {
+        Path text = this.databasePath;
+        Path temporary = text.resolveSibling(text.getFileName() + ".tmp");
+        try {
+            PrintWriter outputStream = new PrintWriter(Files.newBufferedWriter(temporary, StandardCharsets.UTF_8));
+            outputStream.println(current.getSize());
+            for (int i = 0; i < current.getSize(); i++){
+                outputStream.println(current.getPuzzle(i));
+            }
+            outputStream.close( );
+            if (outputStream.checkError())
+                throw new IOException("The puzzles could not be written to " + temporary);
+
+            PuzzleFile.moveAtomically(temporary, text);
+            PuzzleFile.stampSource(text, this.binaryPath);
+        }
+        finally {
+            Files.deleteIfExists(temporary);
         }
     }
 
     /**
      * The main method of the PuzzleDatabase class.
-     * It creates a new PuzzleDatabase object, adds puzzles from a file, saves the puzzles to the database file, and prints a puzzle from the database.
+     * It creates a new PuzzleDatabase object, adds puzzles from a file, saves the puzzles, and prints a puzzle from the database.
      * @param args the command line arguments
      */
     public static void main(String[] args) {
@@ -0,0 +1,544 @@
+package am.aua.chess.puzzles;
+
+import am.aua.chess.core.Bitboards;
+import am.aua.chess.core.Chess;
+import am.aua.chess.utils.MalformedPuzzleException;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The PuzzleFile class reads the binary puzzle database through memory-mapped buffers,
+ * decoding a puzzle only when it is asked for.
+ * <p>
+ * The file starts with a header (magic number, version, puzzle count, and the modification time
+ * and length of the text database it was converted from), followed by one fixed-size record per puzzle,
+ * an offset table and a blob of UTF-8 texts. The text of puzzle i spans the blob bytes from offset i to
+ * offset i + 1, and holds its description, followed by a line break and its solution when known.
+ * A record holds the difficulty byte, the turn byte, the arrangement packed in 5 bits per square,
+ * the rating (0 when not rated) as an unsigned short, the mate depth (0 when unknown), three reserved bytes
+ * and the signature key of the material on the board, which the PuzzleIndex is built from.
+ * <p>
+ * The square codes follow the order of the arrangement characters, so comparing the first KEY_BYTES bytes
+ * of two records as unsigned bytes orders them like Puzzle.compareTo, and equal keys mean equal puzzles.
+ * The rating lies outside the key, so a puzzle matches its copies whether they are rated or not.
+ * The records are written in that order, by a Writer.
+ * <p>
+ * A PuzzleFile is never modified once mapped and only reads its buffers with absolute gets,
+ * so any number of threads may read it concurrently.
+ */
+final class PuzzleFile {
+    private static final int MAGIC = 0x4A43505A;
+    private static final int VERSION = 5;
+    private static final int HEADER_BYTES = 32;
+    private static final int COUNT_OFFSET = 8;
+    private static final int SOURCE_MODIFIED_OFFSET = 16;
+    private static final int SOURCE_LENGTH_OFFSET = 24;
+
+    /** The size of a puzzle record in bytes. */
+    static final int RECORD_BYTES = 56;
+    /** The number of leading record bytes that order and identify a puzzle. */
+    static final int KEY_BYTES = 42;
+    private static final int TURN_OFFSET = 1;
+    private static final int BOARD_OFFSET = 2;
+    private static final int BOARD_BYTES = 40;
+    private static final int RATING_OFFSET = 42;
+    private static final int MATE_DEPTH_OFFSET = 44;
+    private static final int MATERIAL_OFFSET = 48;
+    private static final int BITS_PER_SQUARE = 5;
+
+    /** The characters an arrangement may contain, in increasing order; a square's code is its index here. */
+    private static final String SQUARE_CODES = " -BKLNPQRSbklnpqrs";
+    /** The bitboard index of the piece of every square code. */
+    private static final int[] CODE_PIECES = new int[SQUARE_CODES.length()];
+
+    static {
+        for (int code = 0; code < CODE_PIECES.length; code++)
+            CODE_PIECES[code] = Bitboards.pieceIndexOf(SQUARE_CODES.charAt(code));
+    }
+
+    private final ByteBuffer index;
+    private final ByteBuffer descriptions;
+    private final int count;
+    private final long sourceModified;
+    private final long sourceLength;
+
+    /**
+     * Maps the given binary database file.
+     *
+     * @param path the path of the binary file
+     * @throws IOException if the file cannot be read, is not a puzzle database or is too large to map
+     */
+    PuzzleFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES)
+                throw new IOException("The puzzle database " + path + " is truncated.");
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+                throw new IOException("The file " + path + " is not a puzzle database of version " + VERSION + ".");
+
+            this.count = header.getInt(COUNT_OFFSET);
+            this.sourceModified = header.getLong(SOURCE_MODIFIED_OFFSET);
+            this.sourceLength = header.getLong(SOURCE_LENGTH_OFFSET);
+            long indexBytes = HEADER_BYTES + (long) count * RECORD_BYTES + (count + 1L) * Long.BYTES;
+            if (indexBytes > Integer.MAX_VALUE || channel.size() - indexBytes > Integer.MAX_VALUE)
+                throw new IOException("The puzzle database " + path + " is too large to map.");
+            this.index = channel.map(FileChannel.MapMode.READ_ONLY, 0, indexBytes);
+            this.descriptions = channel.map(FileChannel.MapMode.READ_ONLY, indexBytes, channel.size() - indexBytes);
+        }
+    }
+
+    /**
+     * Returns the number of puzzles in the file.
+     *
+     * @return the number of puzzles
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Returns the modification time of the text database the file was converted from.
+     *
+     * @return the modification time in milliseconds
+     */
+    long getSourceModified() {
+        return sourceModified;
+    }
+
+    /**
+     * Returns the length of the text database the file was converted from.
+     *
+     * @return the length in bytes
+     */
+    long getSourceLength() {
+        return sourceLength;
+    }
+
+    /**
+     * Decodes the puzzle at the given index.
+     *
+     * @param i the index of the puzzle, in natural order
+     * @return the puzzle
+     */
+    Puzzle get(int i) {
+        int record = recordOffset(i);
+        char[] arrangement = new char[Chess.BOARD_RANKS * Chess.BOARD_FILES];
+        for (int square = 0; square < arrangement.length; square++)
+            arrangement[square] = SQUARE_CODES.charAt(squareCode(index, record + BOARD_OFFSET, square));
+
+        String text = new String(this.readText(i), StandardCharsets.UTF_8);
+        int lineBreak = text.indexOf('\n');
+        return new Puzzle(new String(arrangement),
+                Chess.PieceColor.values()[index.get(record + TURN_OFFSET)],
+                Puzzle.Difficulty.values()[index.get(record)],
+                index.getShort(record + RATING_OFFSET) & 0xFFFF,
+                lineBreak < 0 ? text : text.substring(0, lineBreak),
+                index.get(record + MATE_DEPTH_OFFSET) & 0xFF,
+                lineBreak < 0 ? "" : text.substring(lineBreak + 1));
+    }
+
+    /**
+     * Returns the difficulty of the puzzle at the given index, without decoding it.
+     *
+     * @param i the index of the puzzle
+     * @return the ordinal of the difficulty
+     */
+    int getDifficultyOrdinal(int i) {
+        return index.get(recordOffset(i));
+    }
+
+    /**
+     * Returns the side to move of the puzzle at the given index, without decoding it.
+     *
+     * @param i the index of the puzzle
+     * @return the ordinal of the turn color
+     */
+    int getTurnOrdinal(int i) {
+        return index.get(recordOffset(i) + TURN_OFFSET);
+    }
+
+    /**
+     * Returns the material of the puzzle at the given index, without decoding it.
+     *
+     * @param i the index of the puzzle
+     * @return the signature key of the material on the board
+     */
+    long getMaterialKey(int i) {
+        return index.getLong(recordOffset(i) + MATERIAL_OFFSET);
+    }
+
+    /**
+     * Returns the rating of the puzzle at the given index, without decoding it.
+     *
+     * @param i the index of the puzzle
+     * @return the rating, or 0 if not rated
+     */
+    int getRating(int i) {
+        return index.getShort(recordOffset(i) + RATING_OFFSET) & 0xFFFF;
+    }
+
+    /**
+     * Returns the mate depth stored for the puzzle at the given index.
+     *
+     * @param i the index of the puzzle
+     * @return the number of moves to mate, or 0 if unknown
+     */
+    int getMateDepth(int i) {
+        return index.get(recordOffset(i) + MATE_DEPTH_OFFSET) & 0xFF;
+    }
+
+    /**
+     * Finds the given puzzle by binary search over the sorted records.
+     *
+     * @param puzzle the puzzle to look for
+     * @return the index of an equal puzzle, or (-(insertion point) - 1) if there is none, as in Arrays.binarySearch;
+     *         the insertion point of a puzzle that cannot be encoded is 0
+     */
+    int indexOf(Puzzle puzzle) {
+        byte[] key = new byte[RECORD_BYTES];
+        if (!encode(puzzle, key))
+            return -1;
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareKey(recordOffset(middle), key);
+            if (comparison < 0)
+                low = middle + 1;
+            else if (comparison > 0)
+                high = middle - 1;
+            else
+                return middle;
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Checks whether the binary file has to be converted again from the text database:
+     * it is missing, unreadable, or was converted from a different version of the text file.
+     *
+     * @param text   the path of the text database
+     * @param binary the path of the binary database
+     * @return true if the binary file is missing or stale, false otherwise
+     */
+    static boolean isStale(Path text, Path binary) {
+        if (!Files.exists(binary))
+            return true;
+        if (!Files.exists(text))
+            return false;
+        try (FileChannel channel = FileChannel.open(binary, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0)
+                ;
+            return header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+                    || header.getLong(SOURCE_MODIFIED_OFFSET) != Files.getLastModifiedTime(text).toMillis()
+                    || header.getLong(SOURCE_LENGTH_OFFSET) != Files.size(text);
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Records the current modification time and length of the text database in the header of the binary one,
+     * after both were saved with the same puzzles, so that the binary file is not converted again.
+     *
+     * @param text   the path of the text database
+     * @param binary the path of the binary database
+     * @throws IOException if the header cannot be written
+     */
+    static void stampSource(Path text, Path binary) throws IOException {
+        try (FileChannel channel = FileChannel.open(binary, StandardOpenOption.WRITE)) {
+            ByteBuffer stamp = ByteBuffer.allocate(2 * Long.BYTES);
+            stamp.putLong(Files.getLastModifiedTime(text).toMillis()).putLong(Files.size(text)).flip();
+            channel.write(stamp, SOURCE_MODIFIED_OFFSET);
+        }
+    }
+
+    /**
+     * Moves a completely written file over its target, atomically where the file system supports it,
+     * so that the target is never seen half-written.
+     *
+     * @param source the written file
+     * @param target the file to replace
+     * @throws IOException if the file cannot be moved
+     */
+    static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Copies the record of the puzzle at the given index.
+     *
+     * @param i      the index of the puzzle
+     * @param record the array to fill, of RECORD_BYTES bytes
+     */
+    void readRecord(int i, byte[] record) {
+        index.get(recordOffset(i), record, 0, RECORD_BYTES);
+    }
+
+    /**
+     * Copies the UTF-8 text of the puzzle at the given index: its description, then its solution if known.
+     *
+     * @param i the index of the puzzle
+     * @return the bytes of the text
+     */
+    byte[] readText(int i) {
+        recordOffset(i);
+        int start = (int) index.getLong(offsetTableOffset(i));
+        byte[] description = new byte[(int) index.getLong(offsetTableOffset(i + 1)) - start];
+        descriptions.get(start, description);
+        return description;
+    }
+
+    /**
+     * Compares the keys of two records as unsigned bytes, which orders them like Puzzle.compareTo.
+     *
+     * @param record the first record
+     * @param other  the second record
+     * @return a negative integer, zero, or a positive integer as the first record orders before, with or after the second
+     */
+    static int compareKeys(byte[] record, byte[] other) {
+        return Arrays.compareUnsigned(record, 0, KEY_BYTES, other, 0, KEY_BYTES);
+    }
+
+    /**
+     * The Writer class writes a binary database one puzzle at a time, in constant memory.
+     * The puzzles have to be added in natural order. The records, offsets and descriptions are
+     * streamed to temporary files next to the target, which are joined behind the header on commit.
+     */
+    static final class Writer implements Closeable {
+        private final Path target;
+        private final long sourceModified;
+        private final long sourceLength;
+        private final Path recordsPath;
+        private final Path offsetsPath;
+        private final Path descriptionsPath;
+        private final DataOutputStream records;
+        private final DataOutputStream offsets;
+        private final OutputStream descriptions;
+        private final byte[] record = new byte[RECORD_BYTES];
+        private int count;
+        private long descriptionOffset;
+
+        /**
+         * Starts writing a binary database.
+         *
+         * @param target         the path of the binary database to write
+         * @param sourceModified the modification time of the text database it stands for, in milliseconds
+         * @param sourceLength   the length of that text database in bytes
+         * @throws IOException if the temporary files cannot be created
+         */
+        Writer(Path target, long sourceModified, long sourceLength) throws IOException {
+            this.target = target;
+            this.sourceModified = sourceModified;
+            this.sourceLength = sourceLength;
+            Path directory = target.toAbsolutePath().getParent();
+            String name = target.getFileName().toString();
+            this.recordsPath = Files.createTempFile(directory, name, ".records.tmp");
+            this.offsetsPath = Files.createTempFile(directory, name, ".offsets.tmp");
+            this.descriptionsPath = Files.createTempFile(directory, name, ".descriptions.tmp");
+            this.records = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(recordsPath)));
+            this.offsets = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(offsetsPath)));
+            this.descriptions = new BufferedOutputStream(Files.newOutputStream(descriptionsPath));
+            this.offsets.writeLong(0);
+        }
+
+        /**
+         * Appends a puzzle.
+         *
+         * @param puzzle the puzzle, ordered after every puzzle added before
+         * @throws IOException              if a temporary file cannot be written
+         * @throws MalformedPuzzleException if the arrangement contains a character that cannot be encoded
+         */
+        void add(Puzzle puzzle) throws IOException, MalformedPuzzleException {
+            if (!encode(puzzle, record))
+                throw new MalformedPuzzleException("The arrangement " + puzzle.getArrangement() + " cannot be stored.");
+            String text = puzzle.getSolution().isEmpty() ? puzzle.getDescription()
+                    : puzzle.getDescription() + "\n" + puzzle.getSolution();
+            this.append(record, text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Appends a puzzle of another binary database without decoding it.
+         *
+         * @param source the database to copy from
+         * @param i      the index of the puzzle in the source
+         * @throws IOException if a temporary file cannot be written
+         */
+        void add(PuzzleFile source, int i) throws IOException {
+            source.readRecord(i, record);
+            this.append(record, source.readText(i));
+        }
+
+        /**
+         * Appends an encoded record and its text.
+         *
+         * @param record the encoded record
+         * @param text   the UTF-8 description, followed by the solution if known
+         * @throws IOException if a temporary file cannot be written
+         */
+        private void append(byte[] record, byte[] text) throws IOException {
+            records.write(record);
+            descriptions.write(text);
+            descriptionOffset += text.length;
+            offsets.writeLong(descriptionOffset);
+            count++;
+        }
+
+        /**
+         * Returns the number of puzzles written so far.
+         *
+         * @return the number of puzzles
+         */
+        int size() {
+            return count;
+        }
+
+        /**
+         * Completes the database and moves it over the target.
+         *
+         * @throws IOException if the database cannot be written
+         */
+        void commit() throws IOException {
+            records.close();
+            offsets.close();
+            descriptions.close();
+            Path temporary = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(), ".tmp");
+            try {
+                try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                    output.writeInt(MAGIC);
+                    output.writeInt(VERSION);
+                    output.writeInt(count);
+                    output.writeInt(0);
+                    output.writeLong(sourceModified);
+                    output.writeLong(sourceLength);
+                    Files.copy(recordsPath, output);
+                    Files.copy(offsetsPath, output);
+                    Files.copy(descriptionsPath, output);
+                }
+                moveAtomically(temporary, target);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+
+        /**
+         * Deletes the temporary files. A database that was not committed is discarded.
+         *
+         * @throws IOException if a temporary file cannot be deleted
+         */
+        public void close() throws IOException {
+            records.close();
+            offsets.close();
+            descriptions.close();
+            Files.deleteIfExists(recordsPath);
+            Files.deleteIfExists(offsetsPath);
+            Files.deleteIfExists(descriptionsPath);
+        }
+    }
+
+    /**
+     * Encodes the given puzzle into a record.
+     *
+     * @param puzzle the puzzle
+     * @param record the array to fill, of RECORD_BYTES bytes
+     * @return true if the puzzle could be encoded, false if its arrangement contains an unknown character
+     */
+    static boolean encode(Puzzle puzzle, byte[] record) {
+        Arrays.fill(record, (byte) 0);
+        record[0] = (byte) puzzle.getDifficulty().ordinal();
+        record[RATING_OFFSET] = (byte) (puzzle.getRating() >>> 8);
+        record[RATING_OFFSET + 1] = (byte) puzzle.getRating();
+        record[TURN_OFFSET] = (byte) puzzle.getTurn().ordinal();
+        record[MATE_DEPTH_OFFSET] = (byte) puzzle.getMateDepth();
+        String arrangement = puzzle.getArrangement();
+        int[] counts = new int[Bitboards.PIECE_INDICES];
+        for (int square = 0; square < arrangement.length(); square++) {
+            int code = SQUARE_CODES.indexOf(arrangement.charAt(square));
+            if (code < 0)
+                return false;
+            if (CODE_PIECES[code] != Bitboards.NO_PIECE)
+                counts[CODE_PIECES[code]]++;
+            // The codes are written from the most significant bit on, so that byte order follows square order.
+            int bit = square * BITS_PER_SQUARE;
+            int value = code << (16 - BITS_PER_SQUARE - (bit & 7));
+            record[BOARD_OFFSET + (bit >>> 3)] |= (byte) (value >>> 8);
+            if ((bit & 7) + BITS_PER_SQUARE > 8)
+                record[BOARD_OFFSET + (bit >>> 3) + 1] |= (byte) value;
+        }
+        ByteBuffer.wrap(record).putLong(MATERIAL_OFFSET, PuzzleIndex.signatureKey(counts));
+        return true;
+    }
+
+    /**
+     * Reads the code of a square from a packed board.
+     *
+     * @param buffer the buffer holding the board
+     * @param board  the offset of the packed board in the buffer
+     * @param square the square index
+     * @return the code of the square
+     */
+    private static int squareCode(ByteBuffer buffer, int board, int square) {
+        int bit = square * BITS_PER_SQUARE;
+        int position = board + (bit >>> 3);
+        int high = buffer.get(position) & 0xFF;
+        int low = position + 1 < board + BOARD_BYTES ? buffer.get(position + 1) & 0xFF : 0;
+        return ((high << 8 | low) >>> (16 - BITS_PER_SQUARE - (bit & 7))) & ((1 << BITS_PER_SQUARE) - 1);
+    }
+
+    /**
+     * Compares the key of a mapped record with the key of an encoded record, as unsigned bytes.
+     *
+     * @param record the offset of the mapped record
+     * @param key    the encoded record
+     * @return a negative integer, zero, or a positive integer as the mapped record orders before, with or after the key
+     */
+    private int compareKey(int record, byte[] key) {
+        for (int i = 0; i < KEY_BYTES; i++) {
+            int comparison = Integer.compare(index.get(record + i) & 0xFF, key[i] & 0xFF);
+            if (comparison != 0)
+                return comparison;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the offset of a puzzle record in the index buffer.
+     *
+     * @param i the index of the puzzle
+     * @return the offset of the record
+     * @throws IndexOutOfBoundsException if there is no puzzle at the index
+     */
+    private int recordOffset(int i) {
+        if (i < 0 || i >= count)
+            throw new IndexOutOfBoundsException("No puzzle available at index " + i);
+        return HEADER_BYTES + i * RECORD_BYTES;
+    }
+
+    /**
+     * Returns the offset of an entry of the description offset table in the index buffer.
+     *
+     * @param i the index of the entry, from 0 to the number of puzzles
+     * @return the offset of the entry
+     */
+    private int offsetTableOffset(int i) {
+        return HEADER_BYTES + count * RECORD_BYTES + i * Long.BYTES;
+    }
+}
@@ -0,0 +1,339 @@
+package am.aua.chess.puzzles;
+
+import am.aua.chess.utils.MalformedPuzzleException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The PuzzleImporter class streams puzzles from text into a binary database in bounded memory.
+ * <p>
+ * Puzzles are read one record at a time. Malformed records are counted in the report and skipped.
+ * New puzzles are sorted in runs of RUN_SIZE puzzles, each written to a temporary binary file,
+ * and the runs are finally merged with the existing database into the target file, so that at most
+ * RUN_SIZE puzzles are held in memory however large the input is.
+ * <p>
+ * When importing, duplicates are found exactly, by comparing whole keys: puzzles already in the database
+ * by binary search, and puzzles imported more than once during the merge, which brings equal keys together.
+ * A puzzle is therefore counted as added when it is read, and moved to the duplicates when the merge
+ * finds an equal one imported before it.
+ */
+final class PuzzleImporter implements Closeable {
+    /** The number of puzzles kept in memory before they are sorted and written to a temporary run. */
+    static final int RUN_SIZE = 1 << 16;
+
+    private final PuzzleFile base;
+    private final Path target;
+    private final long sourceModified;
+    private final long sourceLength;
+    private final boolean deduplicate;
+    private final ImportReport report = new ImportReport();
+    private Puzzle[] excluded = new Puzzle[0];
+    private final List<Puzzle> run = new ArrayList<>();
+    private final List<Path> runPaths = new ArrayList<>();
+    private final byte[] record = new byte[PuzzleFile.RECORD_BYTES];
+
+    /**
+     * Constructs a new PuzzleImporter.
+     *
+     * @param base           the database to add the puzzles to, or null to start from an empty one
+     * @param target         the path of the binary database to write
+     * @param sourceModified the modification time of the text database the result stands for, in milliseconds
+     * @param sourceLength   the length of that text database in bytes
+     * @param deduplicate    whether to skip puzzles equal to one already in the database or imported before
+     */
+    PuzzleImporter(PuzzleFile base, Path target, long sourceModified, long sourceLength, boolean deduplicate) {
+        this.base = base;
+        this.target = target;
+        this.sourceModified = sourceModified;
+        this.sourceLength = sourceLength;
+        this.deduplicate = deduplicate;
+    }
+
+    /**
+     * Converts a text database into a binary one. The text file starts with the number of puzzles,
+     * followed by two lines per puzzle: the arrangement, turn and difficulty, then the description.
+     * Every well-formed puzzle is kept, even if it equals another one.
+     *
+     * @param text   the path of the text database
+     * @param binary the path of the binary database to write
+     * @return the report of the conversion
+     * @throws IOException if a file cannot be read or written
+     */
+    static ImportReport convert(Path text, Path binary) throws IOException {
+        try (PuzzleImporter importer = new PuzzleImporter(null, binary,
+                Files.getLastModifiedTime(text).toMillis(), Files.size(text), false);
+             BufferedReader reader = Files.newBufferedReader(text, StandardCharsets.UTF_8)) {
+            importer.readDatabase(reader);
+            return importer.finish();
+        }
+    }
+
+    /**
+     * Reads a text database: a line with the number of puzzles, followed by the puzzles.
+     *
+     * @param reader the reader of the text database
+     * @throws IOException if the reader fails
+     */
+    void readDatabase(BufferedReader reader) throws IOException {
+        String countLine = reader.readLine();
+        if (countLine == null)
+            return;
+        try {
+            this.readPuzzles(reader, 2, Long.parseLong(countLine.trim()));
+        } catch (NumberFormatException e) {
+            report.countMalformed(1, "The content of the database file should start with a line of single integer.");
+            this.readPuzzles(reader, 2, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Reads puzzles until the end of the input. Each puzzle is represented by two lines: the first line
+     * contains the arrangement, turn and difficulty, and the second line contains the description.
+     *
+     * @param reader the reader of the puzzles
+     * @throws IOException if the reader fails
+     */
+    void readPuzzles(BufferedReader reader) throws IOException {
+        this.readPuzzles(reader, 1, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads at most the given number of puzzles.
+     *
+     * @param reader    the reader of the puzzles
+     * @param firstLine the line number of the first puzzle, for the report
+     * @param limit     the maximum number of puzzles to read
+     * @throws IOException if the reader fails
+     */
+    private void readPuzzles(BufferedReader reader, long firstLine, long limit) throws IOException {
+        long line = firstLine;
+        for (long i = 0; i < limit; i++, line += 2) {
+            String details = reader.readLine();
+            if (details == null)
+                return;
+            String description = reader.readLine();
+            if (description == null) {
+                report.countMalformed(line, "The puzzle has no description line.");
+                return;
+            }
+            this.add(details, description, line);
+        }
+    }
+
+    /**
+     * Adds one puzzle, unless it is malformed or a duplicate.
+     *
+     * @param details     the arrangement, turn and difficulty of the puzzle
+     * @param description the description of the puzzle
+     * @param line        the line number of the puzzle, for the report
+     * @throws IOException if a full run cannot be written
+     */
+    private void add(String details, String description, long line) throws IOException {
+        Puzzle puzzle;
+        try {
+            puzzle = new Puzzle(details, description);
+        } catch (MalformedPuzzleException e) {
+            report.countMalformed(line, e.getMessage());
+            return;
+        }
+        if (!PuzzleFile.encode(puzzle, record)) {
+            report.countMalformed(line, "The given Arrangement contains a character that is not a piece.");
+            return;
+        }
+        if (deduplicate && ((base != null && base.indexOf(puzzle) >= 0) || Arrays.binarySearch(excluded, puzzle) >= 0)) {
+            report.countDuplicate();
+            return;
+        }
+
+        run.add(puzzle);
+        report.countAdded();
+        if (run.size() >= RUN_SIZE)
+            this.writeRun();
+    }
+
+    /**
+     * Returns the report of the puzzles read so far.
+     *
+     * @return the report
+     */
+    ImportReport getReport() {
+        return report;
+    }
+
+    /**
+     * Marks puzzles as already in the database, so that equal ones are counted as duplicates.
+     *
+     * @param puzzles puzzles held elsewhere, e.g. in the journal of the database, sorted in natural order;
+     *                the array is kept, not copied, and must not be modified
+     */
+    void exclude(Puzzle[] puzzles) {
+        this.excluded = puzzles;
+    }
+
+    /**
+     * Adds a puzzle to the target database without checking or counting it.
+     *
+     * @param puzzle a puzzle known to be valid and new, e.g. from the journal of the database
+     * @throws IOException if a full run cannot be written
+     */
+    void include(Puzzle puzzle) throws IOException {
+        run.add(puzzle);
+        if (run.size() >= RUN_SIZE)
+            this.writeRun();
+    }
+
+    /**
+     * Checks whether every puzzle added so far is still held in memory, none having been written to a run.
+     *
+     * @return true if no run was written
+     */
+    boolean isBuffered() {
+        return runPaths.isEmpty();
+    }
+
+    /**
+     * Returns the puzzles added so far and held in memory, sorted in natural order. When importing,
+     * each puzzle is kept once, as first read, and the later equal ones are counted as duplicates.
+     *
+     * @return the buffered puzzles
+     */
+    List<Puzzle> getBuffered() {
+        run.sort(Puzzle::compareTo);
+        if (deduplicate) {
+            int kept = 0;
+            for (int i = 0; i < run.size(); i++) {
+                if (kept > 0 && run.get(i).equals(run.get(kept - 1)))
+                    report.countLaterDuplicate();
+                else
+                    run.set(kept++, run.get(i));
+            }
+            run.subList(kept, run.size()).clear();
+        }
+        return run;
+    }
+
+    /**
+     * Writes the target database: the existing puzzles merged with the imported ones, in natural order.
+     * Nothing is written when puzzles were only added to an existing database and none was new.
+     *
+     * @return the report of the import
+     * @throws IOException if a file cannot be read or written
+     */
+    ImportReport finish() throws IOException {
+        if (base != null && run.isEmpty() && runPaths.isEmpty())
+            return report;
+        this.writeRun();
+
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>();
+        if (base != null)
+            new Cursor(base, 0).offerTo(cursors);
+        for (int i = 0; i < runPaths.size(); i++)
+            new Cursor(new PuzzleFile(runPaths.get(i)), i + 1).offerTo(cursors);
+
+        try (PuzzleFile.Writer writer = new PuzzleFile.Writer(target, sourceModified, sourceLength)) {
+            byte[] last = null;
+            while (!cursors.isEmpty()) {
+                Cursor cursor = cursors.poll();
+                // Equal puzzles come out one after the other, the existing ones first; an added puzzle
+                // equal to the puzzle before it is a duplicate imported later, and is dropped.
+                if (!deduplicate || cursor.order == 0 || last == null || PuzzleFile.compareKeys(cursor.record, last) != 0) {
+                    writer.add(cursor.file, cursor.next);
+                    last = cursor.record.clone();
+                } else {
+                    report.countLaterDuplicate();
+                }
+                cursor.next++;
+                cursor.offerTo(cursors);
+            }
+            writer.commit();
+        }
+        return report;
+    }
+
+    /**
+     * Sorts the puzzles kept in memory and writes them to a temporary run file.
+     *
+     * @throws IOException if the run cannot be written
+     */
+    private void writeRun() throws IOException {
+        if (run.isEmpty())
+            return;
+        run.sort(Puzzle::compareTo);
+        Path runPath = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(), ".run");
+        runPaths.add(runPath);
+        try (PuzzleFile.Writer writer = new PuzzleFile.Writer(runPath, 0, 0)) {
+            for (Puzzle puzzle : run)
+                writer.add(puzzle);
+            writer.commit();
+        } catch (MalformedPuzzleException e) {
+            throw new IllegalStateException("An encoded puzzle could not be written.", e);
+        }
+        run.clear();
+    }
+
+    /**
+     * Deletes the temporary run files.
+     */
+    public void close() {
+        for (Path runPath : runPaths) {
+            try {
+                Files.deleteIfExists(runPath);
+            } catch (IOException e) {
+                runPath.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * The Cursor class walks through the records of one sorted source during the merge.
+     */
+    private static final class Cursor implements Comparable<Cursor> {
+        private final PuzzleFile file;
+        private final int order;
+        private final byte[] record = new byte[PuzzleFile.RECORD_BYTES];
+        private int next;
+
+        /**
+         * Constructs a new Cursor at the first record of a source.
+         *
+         * @param file  the source
+         * @param order the rank of the source, to keep the earlier one of equal puzzles
+         */
+        Cursor(PuzzleFile file, int order) {
+            this.file = file;
+            this.order = order;
+        }
+
+        /**
+         * Loads the next record and puts the cursor back in the queue, unless the source is exhausted.
+         *
+         * @param cursors the queue of the merge
+         */
+        void offerTo(PriorityQueue<Cursor> cursors) {
+            if (next < file.size()) {
+                file.readRecord(next, record);
+                cursors.offer(this);
+            }
+        }
+
+        /**
+         * Orders cursors by their current record, then by the rank of their source.
+         *
+         * @param that the cursor to compare with
+         * @return a negative integer, zero, or a positive integer as this cursor comes before, with or after that one
+         */
+        public int compareTo(Cursor that) {
+            int comparison = PuzzleFile.compareKeys(this.record, that.record);
+            return comparison != 0 ? comparison : Integer.compare(this.order, that.order);
+        }
+    }
+}
@@ -0,0 +1,466 @@
+package am.aua.chess.puzzles;
+
+import am.aua.chess.core.Bitboards;
+import am.aua.chess.core.Chess;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The PuzzleIndex class answers puzzle queries without scanning the database.
+ * <p>
+ * Since the records are sorted by difficulty first, the puzzles of one difficulty form a contiguous
+ * range of indices, and the index only keeps where every range starts. The side to move and the
+ * material signature are indexed by sorted posting lists of puzzle indices, which a difficulty range
+ * cuts down by binary search. Every query therefore resolves to a range or a slice of a posting list,
+ * so counting, paging and random picks take logarithmic time, except for queries on both the side to
+ * move and a material signature, which filter the signature's posting list.
+ * <p>
+ * Queries served by rating use a posting list of every puzzle sorted by difficulty, rating and index,
+ * held as sort keys (see ratingKey), in which a difficulty and a rating range cut a slice by binary search.
+ * The side to move filters that slice, and a material signature is served from its own posting list,
+ * filtered by rating and sorted. A rating range in natural order filters the posting list of the query.
+ */
+final class PuzzleIndex {
+    private static final int[] EMPTY = new int[0];
+    /** The bits of a piece count in a signature key. */
+    private static final int COUNT_BITS = 5;
+    private static final int MAX_COUNT = (1 << COUNT_BITS) - 1;
+    /** The signature letters, by piece type. */
+    private static final String SIGNATURE_LETTERS = "PNBRQK";
+
+    private final int size;
+    private final int[] difficultyStarts;
+    private final int[][] turnPostings;
+    private final BitSet blackToMove;
+    private final Map<Long, int[]> signaturePostings;
+    /** The rating of every puzzle, by index. */
+    private final int[] ratings;
+    /** The sort key of every puzzle, in rating order. */
+    private final long[] ratingKeys;
+
+    /**
+     * Builds the index of the given database by reading every record once.
+     *
+     * @param file the database, with its records sorted in natural order
+     */
+    PuzzleIndex(PuzzleFile file) {
+        this.size = file.size();
+        this.difficultyStarts = new int[Puzzle.Difficulty.values().length + 1];
+        this.blackToMove = new BitSet(size);
+        this.ratings = new int[size];
+        this.ratingKeys = new long[size];
+
+        int nextDifficulty = 0;
+        int blackCount = 0;
+        Map<Long, IntList> signatures = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            int difficulty = file.getDifficultyOrdinal(i);
+            while (nextDifficulty <= difficulty)
+                difficultyStarts[nextDifficulty++] = i;
+            if (file.getTurnOrdinal(i) == Chess.PieceColor.BLACK.ordinal()) {
+                blackToMove.set(i);
+                blackCount++;
+            }
+            signatures.computeIfAbsent(file.getMaterialKey(i), key -> new IntList()).add(i);
+            ratings[i] = file.getRating(i);
+            ratingKeys[i] = ratingKey(difficulty, ratings[i], i);
+        }
+        Arrays.sort(ratingKeys);
+        while (nextDifficulty < difficultyStarts.length)
+            difficultyStarts[nextDifficulty++] = size;
+
+        int[] white = new int[size - blackCount];
+        int[] black = new int[blackCount];
+        for (int i = 0, w = 0, b = 0; i < size; i++) {
+            if (blackToMove.get(i))
+                black[b++] = i;
+            else
+                white[w++] = i;
+        }
+        this.turnPostings = new int[][] {white, black};
+
+        this.signaturePostings = new HashMap<>(signatures.size() * 2);
+        for (Map.Entry<Long, IntList> entry : signatures.entrySet())
+            signaturePostings.put(entry.getKey(), entry.getValue().toArray());
+    }
+
+    /**
+     * Counts the puzzles matching a query.
+     *
+     * @param query the query
+     * @return the number of matching puzzles
+     */
+    int count(PuzzleQuery query) {
+        return this.select(query).size();
+    }
+
+    /**
+     * Finds a page of the puzzles matching a query, in the order of the query.
+     *
+     * @param query  the query
+     * @param offset the number of matching puzzles to skip
+     * @param limit  the maximum number of puzzles to return
+     * @return the indices of the matching puzzles
+     */
+    int[] find(PuzzleQuery query, int offset, int limit) {
+        Selection selection = this.select(query);
+        int from = Math.min(Math.max(offset, 0), selection.size());
+        int[] indices = new int[Math.min(Math.max(limit, 0), selection.size() - from)];
+        for (int k = 0; k < indices.length; k++)
+            indices[k] = selection.get(from + k);
+        return indices;
+    }
+
+    /**
+     * Picks one of the puzzles matching a query, uniformly at random.
+     *
+     * @param query  the query
+     * @param random the source of randomness
+     * @return the index of the picked puzzle, or -1 if no puzzle matches
+     */
+    int pick(PuzzleQuery query, Random random) {
+        Selection selection = this.select(query);
+        return selection.size() == 0 ? -1 : selection.get(random.nextInt(selection.size()));
+    }
+
+    /**
+     * Counts, for puzzles that are not in the database, the puzzles matching a query that come before each of them
+     * in the order of the query.
+     *
+     * @param query      the query
+     * @param puzzles    the puzzles
+     * @param insertions the number of puzzles of the database that come before each puzzle in natural order
+     * @return the number of matching puzzles of the database before each puzzle
+     */
+    int[] rank(PuzzleQuery query, Puzzle[] puzzles, int[] insertions) {
+        Selection selection = this.select(query);
+        int[] ranks = new int[puzzles.length];
+        for (int k = 0; k < puzzles.length; k++) {
+            ranks[k] = query.getOrder() == PuzzleQuery.Order.RATING
+                    ? selection.rankKey(ratingKey(puzzles[k].getDifficulty().ordinal(), puzzles[k].getRating(), insertions[k]))
+                    : selection.rank(insertions[k]);
+        }
+        return ranks;
+    }
+
+    /**
+     * Resolves a query into the matching puzzles, in the order of the query.
+     *
+     * @param query the query
+     * @return the matching puzzles
+     */
+    private Selection select(PuzzleQuery query) {
+        if (query.getOrder() == PuzzleQuery.Order.RATING)
+            return this.selectByRating(query);
+        Selection selection = this.selectNatural(query);
+        if (!query.hasRatingRange())
+            return selection;
+
+        int[] filtered = new int[selection.size()];
+        int count = 0;
+        for (int k = 0; k < selection.size(); k++) {
+            int i = selection.get(k);
+            if (query.matchesRating(ratings[i]))
+                filtered[count++] = i;
+        }
+        return new Selection(filtered, null, 0, count);
+    }
+
+    /**
+     * Resolves a query into a slice of the rating posting list, or into the sort keys of the matching puzzles.
+     *
+     * @param query the query
+     * @return the matching puzzles, in rating order
+     */
+    private Selection selectByRating(PuzzleQuery query) {
+        if (query.getMaterialSignature() != null) {
+            Selection selection = this.selectNatural(query);
+            long[] keys = new long[selection.size()];
+            int count = 0;
+            for (int k = 0; k < selection.size(); k++) {
+                int i = selection.get(k);
+                if (query.matchesRating(ratings[i]))
+                    keys[count++] = ratingKey(this.difficultyOf(i), ratings[i], i);
+            }
+            Arrays.sort(keys, 0, count);
+            return new Selection(null, keys, 0, count);
+        }
+
+        int first = query.getDifficulty() == null ? 0 : query.getDifficulty().ordinal();
+        int last = query.getDifficulty() == null ? difficultyStarts.length - 2 : first;
+        // Without a rating range, the slices of consecutive difficulties meet.
+        if (query.getTurn() == null && (first == last || !query.hasRatingRange())) {
+            return new Selection(null, ratingKeys,
+                    lowerBound(ratingKeys, ratingKey(first, query.getMinRating(), 0)),
+                    lowerBound(ratingKeys, ratingKey(last, query.getMaxRating() + 1, 0)));
+        }
+
+        int[] starts = new int[last - first + 1];
+        int[] ends = new int[last - first + 1];
+        int total = 0;
+        for (int d = first; d <= last; d++) {
+            starts[d - first] = lowerBound(ratingKeys, ratingKey(d, query.getMinRating(), 0));
+            ends[d - first] = lowerBound(ratingKeys, ratingKey(d, query.getMaxRating() + 1, 0));
+            total += ends[d - first] - starts[d - first];
+        }
+        boolean black = query.getTurn() == Chess.PieceColor.BLACK;
+        long[] filtered = new long[total];
+        int count = 0;
+        for (int d = 0; d < starts.length; d++) {
+            for (int k = starts[d]; k < ends[d]; k++) {
+                if (query.getTurn() == null || blackToMove.get((int) ratingKeys[k]) == black)
+                    filtered[count++] = ratingKeys[k];
+            }
+        }
+        return new Selection(null, filtered, 0, count);
+    }
+
+    /**
+     * Resolves the difficulty, side to move and material signature of a query into a range of indices
+     * or a slice of a posting list, in natural order.
+     *
+     * @param query the query
+     * @return the puzzles matching the query, whatever their ratings
+     */
+    private Selection selectNatural(PuzzleQuery query) {
+        int from = 0;
+        int to = size;
+        if (query.getDifficulty() != null) {
+            from = difficultyStarts[query.getDifficulty().ordinal()];
+            to = difficultyStarts[query.getDifficulty().ordinal() + 1];
+        }
+
+        if (query.getMaterialSignature() == null) {
+            if (query.getTurn() == null)
+                return new Selection(null, null, from, to);
+            int[] postings = turnPostings[query.getTurn().ordinal()];
+            return new Selection(postings, null, lowerBound(postings, from), lowerBound(postings, to));
+        }
+
+        int[] postings = signaturePostings.getOrDefault(signatureKey(query.getMaterialSignature()), EMPTY);
+        int start = lowerBound(postings, from);
+        int end = lowerBound(postings, to);
+        if (query.getTurn() == null)
+            return new Selection(postings, null, start, end);
+
+        boolean black = query.getTurn() == Chess.PieceColor.BLACK;
+        int[] filtered = new int[end - start];
+        int count = 0;
+        for (int k = start; k < end; k++)
+            if (blackToMove.get(postings[k]) == black)
+                filtered[count++] = postings[k];
+        return new Selection(filtered, null, 0, count);
+    }
+
+    /**
+     * Returns the difficulty of the puzzle at the given index.
+     *
+     * @param i the index of the puzzle
+     * @return the ordinal of the difficulty
+     */
+    private int difficultyOf(int i) {
+        int difficulty = 0;
+        while (difficultyStarts[difficulty + 1] <= i)
+            difficulty++;
+        return difficulty;
+    }
+
+    /**
+     * Returns the key sorting puzzles in rating order: by difficulty, then rating, then index.
+     * The keys are added up rather than combined bit by bit, so that a rating one past Puzzle.MAX_RATING
+     * gives the key of the next difficulty.
+     *
+     * @param difficulty the ordinal of the difficulty
+     * @param rating     the rating
+     * @param index      the index of the puzzle, which is also the low 32 bits of the key
+     * @return the sort key
+     */
+    static long ratingKey(int difficulty, int rating, int index) {
+        return ((long) difficulty << 48) + ((long) rating << 32) + index;
+    }
+
+    /**
+     * Finds the first element of a sorted array that is not smaller than a value.
+     *
+     * @param sorted the sorted array
+     * @param value  the value
+     * @return the index of that element, or the length of the array if there is none
+     */
+    private static int lowerBound(int[] sorted, int value) {
+        int index = Arrays.binarySearch(sorted, value);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Finds the first element of a sorted array that is not smaller than a value.
+     *
+     * @param sorted the sorted array
+     * @param value  the value
+     * @return the index of that element, or the length of the array if there is none
+     */
+    private static int lowerBound(long[] sorted, long value) {
+        int index = Arrays.binarySearch(sorted, value);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Packs piece counts into a signature key.
+     *
+     * @param counts the number of pieces of every bitboard index
+     * @return the signature key
+     */
+    static long signatureKey(int[] counts) {
+        long key = 0;
+        for (int pieceIndex = 0; pieceIndex < Bitboards.PIECE_INDICES; pieceIndex++)
+            key |= (long) Math.min(counts[pieceIndex], MAX_COUNT) << (pieceIndex * COUNT_BITS);
+        return key;
+    }
+
+    /**
+     * Parses a material signature into a signature key.
+     *
+     * @param signature the material signature, e.g. "KRPPvKR"
+     * @return the signature key
+     * @throws IllegalArgumentException if the signature is malformed
+     */
+    static long signatureKey(String signature) {
+        int separator = signature.toLowerCase().indexOf('v');
+        if (separator < 0 || separator != signature.toLowerCase().lastIndexOf('v'))
+            throw new IllegalArgumentException("The material signature should be of the form KRPPvKR: " + signature);
+
+        int[] counts = new int[Bitboards.PIECE_INDICES];
+        for (int i = 0; i < signature.length(); i++) {
+            if (i == separator)
+                continue;
+            int type = SIGNATURE_LETTERS.indexOf(Character.toUpperCase(signature.charAt(i)));
+            if (type < 0)
+                throw new IllegalArgumentException("Unknown piece in the material signature: " + signature.charAt(i));
+            counts[i < separator ? type : Bitboards.PIECE_TYPES + type]++;
+        }
+        return signatureKey(counts);
+    }
+
+    /**
+     * Writes a signature key as a material signature.
+     *
+     * @param key the signature key
+     * @return the material signature, e.g. "KRPPvKR"
+     */
+    static String signatureOf(long key) {
+        StringBuilder signature = new StringBuilder();
+        for (int color = 0; color < 2; color++) {
+            if (color == 1)
+                signature.append('v');
+            for (int type = Bitboards.KING; type >= Bitboards.PAWN; type--) {
+                int pieceIndex = color * Bitboards.PIECE_TYPES + type;
+                long count = (key >>> (pieceIndex * COUNT_BITS)) & MAX_COUNT;
+                for (int k = 0; k < count; k++)
+                    signature.append(SIGNATURE_LETTERS.charAt(type));
+            }
+        }
+        return signature.toString();
+    }
+
+    /**
+     * The Selection class is a range of puzzle indices, a slice of a posting list when one is given,
+     * or a slice of sort keys in rating order when those are given.
+     */
+    private static final class Selection {
+        private final int[] postings;
+        private final long[] keys;
+        private final int from;
+        private final int to;
+
+        /**
+         * Constructs a new Selection.
+         *
+         * @param postings the posting list, or null
+         * @param keys     the sort keys in rating order, or null; a range of indices when both are null
+         * @param from     the first index, posting or key, inclusive
+         * @param to       the last index, posting or key, exclusive
+         */
+        Selection(int[] postings, long[] keys, int from, int to) {
+            this.postings = postings;
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Returns the number of selected puzzles.
+         *
+         * @return the number of puzzles
+         */
+        int size() {
+            return to - from;
+        }
+
+        /**
+         * Returns the index of a selected puzzle.
+         *
+         * @param k the rank of the puzzle in the selection
+         * @return the index of the puzzle in the database
+         */
+        int get(int k) {
+            if (keys != null)
+                return (int) keys[from + k];
+            return postings == null ? from + k : postings[from + k];
+        }
+
+        /**
+         * Counts the selected puzzles that come before a given index.
+         *
+         * @param index the index in the database
+         * @return the number of selected puzzles with a smaller index
+         */
+        int rank(int index) {
+            if (postings == null)
+                return Math.min(Math.max(index, from), to) - from;
+            int position = Arrays.binarySearch(postings, from, to, index);
+            return (position >= 0 ? position : -position - 1) - from;
+        }
+
+        /**
+         * Counts the selected puzzles that come before a given sort key, in a selection in rating order.
+         *
+         * @param key the sort key
+         * @return the number of selected puzzles with a smaller key
+         */
+        int rankKey(long key) {
+            int position = Arrays.binarySearch(keys, from, to, key);
+            return (position >= 0 ? position : -position - 1) - from;
+        }
+    }
+
+    /**
+     * The IntList class is a growable list of ints, used while the posting lists are built.
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        /**
+         * Appends a value.
+         *
+         * @param value the value
+         */
+        void add(int value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        /**
+         * Returns the values.
+         *
+         * @return an array of exactly the added values
+         */
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
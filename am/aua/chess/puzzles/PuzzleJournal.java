@@ -0,0 +1,277 @@
+package am.aua.chess.puzzles;
+
+import am.aua.chess.utils.MalformedPuzzleException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The PuzzleJournal class is an append-only log of the puzzles added to the database since its last compaction.
+ * <p>
+ * The file starts with an 8-byte header (magic and version), followed by batches of puzzle records:
+ * <pre>
+ *   batch:  int  number of records
+ *           int  length of the records in bytes
+ *           the records
+ *   record: int  length of the payload
+ *           int  CRC-32 of the payload
+ *           byte payload, the puzzle in the two-line text format, encoded in UTF-8
+ * </pre>
+ * A batch of puzzles is appended with a single write and made durable with a single force, so adding
+ * puzzles costs a small append instead of a rewrite of the database. A crash may leave the last batch
+ * partially written; recovery stops at the first batch that is incomplete or holds a record failing its
+ * checksum, and cuts the file there, so only whole batches are ever seen.
+ * A journal of version 1, whose records were not grouped in batches, is rewritten in batches on recovery.
+ */
+final class PuzzleJournal implements Closeable {
+    private static final int MAGIC = 0x4A434A4C;
+    private static final int VERSION = 2;
+    private static final int UNBATCHED_VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int BATCH_HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 8;
+    /** The length above which a payload can only be garbage left by a torn write. */
+    private static final int MAX_PAYLOAD_BYTES = 1 << 20;
+
+    private final Path path;
+    private FileChannel channel;
+
+    /**
+     * Constructs a new PuzzleJournal. The file is only opened by recover().
+     *
+     * @param path the path of the journal file, created if missing
+     */
+    PuzzleJournal(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Opens the journal and reads back the puzzles it holds, dropping a torn batch left by a crash.
+     *
+     * @return the logged puzzles, in the order they were added
+     * @throws IOException if the file cannot be read or is not a puzzle journal
+     */
+    List<Puzzle> recover() throws IOException {
+        this.close();
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        List<Puzzle> puzzles = new ArrayList<>();
+        if (channel.size() < HEADER_BYTES) {
+            this.clear();
+            return puzzles;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(header, 0);
+        int version = header.getInt(4);
+        if (header.getInt(0) != MAGIC || (version != VERSION && version != UNBATCHED_VERSION))
+            throw new IOException("The puzzle journal has an unknown format: " + path);
+
+        long size = channel.size();
+        if (version == UNBATCHED_VERSION) {
+            this.readRecords(HEADER_BYTES, size, Integer.MAX_VALUE, puzzles);
+            this.rewrite(puzzles);
+            return puzzles;
+        }
+
+        long position = HEADER_BYTES;
+        ByteBuffer batchHeader = ByteBuffer.allocate(BATCH_HEADER_BYTES);
+        while (position + BATCH_HEADER_BYTES <= size) {
+            batchHeader.clear();
+            readFully(batchHeader, position);
+            int count = batchHeader.getInt(0);
+            int length = batchHeader.getInt(4);
+            long end = position + BATCH_HEADER_BYTES + length;
+            if (count <= 0 || length < 0 || end > size)
+                break;
+            List<Puzzle> batch = new ArrayList<>(Math.min(count, length / RECORD_HEADER_BYTES + 1));
+            if (this.readRecords(position + BATCH_HEADER_BYTES, end, count, batch) != end || batch.size() != count)
+                break;
+            puzzles.addAll(batch);
+            position = end;
+        }
+
+        if (position < size) {
+            channel.truncate(position);
+            channel.force(true);
+        }
+        channel.position(position);
+        return puzzles;
+    }
+
+    /**
+     * Replaces the journal with one holding the given puzzles in a single batch. The new journal is written
+     * next to the old one and moved over it, so a crash leaves one of the two intact.
+     *
+     * @param puzzles the puzzles of the new journal
+     * @throws IOException if the new journal cannot be written
+     */
+    private void rewrite(List<Puzzle> puzzles) throws IOException {
+        this.close();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            this.clear();
+            this.append(puzzles);
+        } finally {
+            this.close();
+        }
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+    }
+
+    /**
+     * Reads consecutive records, stopping at the first one that is incomplete, fails its checksum or is not a puzzle.
+     *
+     * @param position the position of the first record
+     * @param end      the position the records may not go past
+     * @param limit    the maximum number of records to read
+     * @param puzzles  the list the puzzles are added to
+     * @return the position after the last record read
+     * @throws IOException if the file cannot be read
+     */
+    private long readRecords(long position, long end, int limit, List<Puzzle> puzzles) throws IOException {
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        for (int read = 0; read < limit && position + RECORD_HEADER_BYTES <= end; read++) {
+            recordHeader.clear();
+            readFully(recordHeader, position);
+            int length = recordHeader.getInt(0);
+            if (length < 0 || length > MAX_PAYLOAD_BYTES || position + RECORD_HEADER_BYTES + length > end)
+                break;
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + RECORD_HEADER_BYTES);
+            crc.reset();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != recordHeader.getInt(4))
+                break;
+            Puzzle puzzle = decode(payload.array());
+            if (puzzle == null)
+                break;
+            puzzles.add(puzzle);
+            position += RECORD_HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    /**
+     * Appends a batch of puzzles with one write, then forces it to the storage device.
+     * After a crash, the batch is recovered either whole or not at all.
+     *
+     * @param puzzles the puzzles to log
+     * @throws IOException if the journal cannot be written
+     * @throws IllegalStateException if the journal was not recovered first
+     */
+    void append(List<Puzzle> puzzles) throws IOException {
+        if (channel == null)
+            throw new IllegalStateException("The puzzle journal should be recovered before it is appended to.");
+        if (puzzles.isEmpty())
+            return;
+
+        List<byte[]> payloads = new ArrayList<>(puzzles.size());
+        int bytes = BATCH_HEADER_BYTES;
+        for (Puzzle puzzle : puzzles) {
+            byte[] payload = puzzle.toString().getBytes(StandardCharsets.UTF_8);
+            payloads.add(payload);
+            bytes += RECORD_HEADER_BYTES + payload.length;
+        }
+
+        ByteBuffer batch = ByteBuffer.allocate(bytes);
+        batch.putInt(payloads.size()).putInt(bytes - BATCH_HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        for (byte[] payload : payloads) {
+            crc.reset();
+            crc.update(payload);
+            batch.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        }
+        batch.flip();
+
+        long start = channel.position();
+        try {
+            while (batch.hasRemaining())
+                channel.write(batch);
+            channel.force(false);
+        } catch (IOException e) {
+            // Leave no half-written batch behind for the next append to follow.
+            channel.truncate(start);
+            channel.position(start);
+            throw e;
+        }
+    }
+
+    /**
+     * Empties the journal, once its puzzles have been compacted into the database.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    void clear() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION);
+        header.flip();
+        channel.truncate(0);
+        while (header.hasRemaining())
+            channel.write(header, HEADER_BYTES - header.remaining());
+        channel.force(true);
+        channel.position(HEADER_BYTES);
+    }
+
+    /**
+     * Closes the journal file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Fills a buffer from the journal file.
+     *
+     * @param buffer   the buffer to fill
+     * @param position the position in the file to read from
+     * @throws IOException if the file ends before the buffer is full
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0)
+                throw new IOException("Unexpected end of the puzzle journal: " + path);
+        }
+    }
+
+    /**
+     * Parses a logged puzzle.
+     *
+     * @param payload the puzzle in the two-line text format
+     * @return the puzzle, or null if the payload is not a valid puzzle
+     */
+    private static Puzzle decode(byte[] payload) {
+        String text = new String(payload, StandardCharsets.UTF_8);
+        int lineBreak = text.indexOf('\n');
+        if (lineBreak < 0)
+            return null;
+        try {
+            return new Puzzle(text.substring(0, lineBreak), text.substring(lineBreak + 1));
+        } catch (MalformedPuzzleException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package am.aua.chess.puzzles;
+
+import am.aua.chess.core.Chess;
+
+/**
+ * The PuzzleQuery class selects puzzles of the database by difficulty, side to move, material signature
+ * and rating, and tells the order in which they are served. A criterion that is null matches every puzzle.
+ * <p>
+ * Puzzles are served in natural order, or by rating: by difficulty, then from the lowest rating to the highest,
+ * puzzles of equal ratings keeping their natural order. Unrated puzzles have a rating of 0.
+ * <p>
+ * A material signature lists the white pieces, then "v", then the black pieces, each side ordered
+ * king, queen, rooks, bishops, knights and pawns, e.g. "KRPPvKR" for a king, a rook and two pawns
+ * against a king and a rook. Letters may be of either case.
+ */
+public final class PuzzleQuery {
+
+    /**
+     * Represents the order in which the matching puzzles are served.
+     */
+    public enum Order {
+        /** By difficulty, side to move and arrangement, as the puzzles are stored. */
+        NATURAL,
+        /** By difficulty, then by rating from the lowest to the highest, then in natural order. */
+        RATING
+    }
+
+    private final Puzzle.Difficulty difficulty;
+    private final Chess.PieceColor turn;
+    private final String materialSignature;
+    private final int minRating;
+    private final int maxRating;
+    private final Order order;
+
+    /**
+     * Constructs a new PuzzleQuery matching puzzles of any rating, served in natural order.
+     *
+     * @param difficulty        the difficulty to match, or null for any
+     * @param turn              the side to move to match, or null for any
+     * @param materialSignature the material signature to match, or null for any
+     * @throws IllegalArgumentException if the material signature is malformed
+     */
+    public PuzzleQuery(Puzzle.Difficulty difficulty, Chess.PieceColor turn, String materialSignature) {
+        this(difficulty, turn, materialSignature, 0, Puzzle.MAX_RATING, Order.NATURAL);
+    }
+
+    /**
+     * Constructs a new PuzzleQuery.
+     *
+     * @param difficulty        the difficulty to match, or null for any
+     * @param turn              the side to move to match, or null for any
+     * @param materialSignature the material signature to match, or null for any
+     * @param minRating         the lowest rating to match, 0 to include unrated puzzles
+     * @param maxRating         the highest rating to match, inclusive
+     * @param order             the order in which the matching puzzles are served
+     * @throws IllegalArgumentException if the material signature is malformed, the rating range is empty or out of
+     *                                  0 to Puzzle.MAX_RATING, or the order is null
+     */
+    public PuzzleQuery(Puzzle.Difficulty difficulty, Chess.PieceColor turn, String materialSignature,
+                       int minRating, int maxRating, Order order) {
+        if (minRating < 0 || minRating > maxRating || maxRating > Puzzle.MAX_RATING)
+            throw new IllegalArgumentException("The rating range should be within 0 and " + Puzzle.MAX_RATING
+                    + " and not empty: " + minRating + "-" + maxRating);
+        if (order == null)
+            throw new IllegalArgumentException("The order of a query should not be null.");
+        this.difficulty = difficulty;
+        this.turn = turn;
+        this.materialSignature = materialSignature == null ? null
+                : PuzzleIndex.signatureOf(PuzzleIndex.signatureKey(materialSignature));
+        this.minRating = minRating;
+        this.maxRating = maxRating;
+        this.order = order;
+    }
+
+    /**
+     * Gets the difficulty to match.
+     *
+     * @return the difficulty, or null for any
+     */
+    public Puzzle.Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * Gets the side to move to match.
+     *
+     * @return the turn color, or null for any
+     */
+    public Chess.PieceColor getTurn() {
+        return turn;
+    }
+
+    /**
+     * Gets the material signature to match, in its canonical form.
+     *
+     * @return the material signature, or null for any
+     */
+    public String getMaterialSignature() {
+        return materialSignature;
+    }
+
+    /**
+     * Gets the lowest rating to match.
+     *
+     * @return the lowest rating, 0 if unrated puzzles match
+     */
+    public int getMinRating() {
+        return minRating;
+    }
+
+    /**
+     * Gets the highest rating to match.
+     *
+     * @return the highest rating, inclusive
+     */
+    public int getMaxRating() {
+        return maxRating;
+    }
+
+    /**
+     * Checks whether the query narrows the ratings, i.e. some rating does not match.
+     *
+     * @return true if the rating range is narrower than 0 to Puzzle.MAX_RATING
+     */
+    public boolean hasRatingRange() {
+        return minRating > 0 || maxRating < Puzzle.MAX_RATING;
+    }
+
+    /**
+     * Checks whether a rating is within the rating range of the query.
+     *
+     * @param rating the rating
+     * @return true if the rating matches
+     */
+    boolean matchesRating(int rating) {
+        return rating >= minRating && rating <= maxRating;
+    }
+
+    /**
+     * Gets the order in which the matching puzzles are served.
+     *
+     * @return the order
+     */
+    public Order getOrder() {
+        return order;
+    }
+
+    /**
+     * Returns a string representation of the query.
+     *
+     * @return the three criteria, with "*" for any, followed by the rating range and the order when they are not the defaults
+     */
+    public String toString() {
+        String criteria = (difficulty == null ? "*" : difficulty.toString()) + "," + (turn == null ? "*" : turn.toString())
+                + "," + (materialSignature == null ? "*" : materialSignature);
+        if (this.hasRatingRange() || order != Order.NATURAL)
+            criteria += "," + minRating + "-" + maxRating + "," + order;
+        return criteria;
+    }
+}
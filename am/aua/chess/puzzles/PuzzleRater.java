@@ -0,0 +1,198 @@
+package am.aua.chess.puzzles;
+
+import am.aua.chess.core.Chess;
+import am.aua.chess.core.Move;
+import am.aua.chess.core.MoveList;
+import am.aua.chess.engine.SearchLimits;
+import am.aua.chess.engine.SearchResult;
+import am.aua.chess.engine.Searcher;
+import am.aua.chess.engine.TranspositionTable;
+import am.aua.chess.utils.IllegalArrangementException;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The PuzzleRater class rates the difficulty of puzzles from the statistics of an engine search,
+ * on all the threads of a fork-join pool.
+ * <p>
+ * Every puzzle is searched once, by iterative deepening up to a fixed depth. Its solution is the first move of its recorded
+ * solution, or else the move the deepest search chose; the rating grows with the depth from which the search
+ * keeps choosing the solution, the number of nodes it took to get there, and the number of legal moves
+ * the solving side chooses from along the solution (see DifficultyRating).
+ * Each thread searches with its own small transposition table, cleared before every puzzle, so that a rating
+ * does not depend on which puzzles the thread rated before and the same puzzle always gets the same rating.
+ */
+public final class PuzzleRater {
+    /** The number of puzzles read from the database and rated together. */
+    public static final int BATCH_SIZE = 1 << 12;
+    /** The search depth used when none is given. */
+    public static final int DEFAULT_DEPTH = 6;
+    /** The number of puzzles below which a task rates them itself instead of splitting. */
+    private static final int SEQUENTIAL_PUZZLES = 4;
+    private static final int TABLE_SIZE_MB = 1;
+
+    private final ForkJoinPool pool;
+    private final int depth;
+    private final ThreadLocal<TranspositionTable> tables = ThreadLocal.withInitial(() -> new TranspositionTable(TABLE_SIZE_MB));
+    private final ThreadLocal<Searcher> searchers = ThreadLocal.withInitial(() -> new Searcher(tables.get()));
+
+    /**
+     * Constructs a new PuzzleRater.
+     * @param pool the pool whose threads rate the puzzles
+     * @param depth the depth in plies every puzzle is searched to
+     * @throws IllegalArgumentException if the depth is not between 1 and SearchLimits.MAX_DEPTH
+     */
+    public PuzzleRater(ForkJoinPool pool, int depth) {
+        if (depth < 1 || depth > SearchLimits.MAX_DEPTH)
+            throw new IllegalArgumentException("The search depth should be between 1 and " + SearchLimits.MAX_DEPTH + ".");
+        this.pool = pool;
+        this.depth = depth;
+    }
+
+    /**
+     * Rates a puzzle, on the calling thread.
+     * @param puzzle the puzzle to rate
+     * @return the rating with the statistics it was derived from
+     * @throws IllegalArrangementException if the puzzle is not a legal position
+     */
+    public DifficultyRating rate(Puzzle puzzle) throws IllegalArrangementException {
+        PuzzleValidator.validate(puzzle);
+        Chess chess = new Chess(puzzle.getArrangement(), puzzle.getTurn());
+        tables.get().clear();
+        Searcher searcher = searchers.get();
+
+        // A search stopping short of its depth found a mate or has no move, and so would every deeper one.
+        SearchResult result = searcher.search(chess, SearchLimits.depth(depth));
+        int reached = result.getDepth();
+
+        int[] line = parseLine(chess, puzzle.getSolution());
+        if (line.length == 0)
+            line = result.getPrincipalVariation();
+        int solution = line.length > 0 ? line[0] : result.getBestMove();
+        int solutionDepth = reached + 1;
+        while (solutionDepth > 1 && result.getBestMoveAt(solutionDepth - 1) == solution)
+            solutionDepth--;
+        long nodesToSolve = result.getNodesAt(Math.min(solutionDepth, reached));
+        return new DifficultyRating(solutionDepth, nodesToSolve, branchingFactor(chess, line));
+    }
+
+    /**
+     * Returns a copy of a puzzle with the given rating.
+     * @param puzzle the rated puzzle
+     * @param rating its rating
+     * @return the rated puzzle
+     */
+    public static Puzzle tag(Puzzle puzzle, DifficultyRating rating) {
+        return new Puzzle(puzzle.getArrangement(), puzzle.getTurn(), puzzle.getDifficulty(), rating.getRating(),
+                puzzle.getDescription(), puzzle.getMateDepth(), puzzle.getSolution());
+    }
+
+    /**
+     * Rates in parallel the puzzles that are not rated yet, and replaces each one with its rated copy.
+     * @param puzzles the puzzles to rate, replaced in place by their rated copies
+     * @param firstIndex the database index of the first puzzle, used to locate puzzles in the report
+     * @return the report of the rating
+     */
+    public RatingReport rate(Puzzle[] puzzles, long firstIndex) {
+        return pool.invoke(new RatingTask(puzzles, firstIndex, 0, puzzles.length));
+    }
+
+    /**
+     * Converts a solution into packed moves, as far as its moves are legal.
+     * @param game the position the solution starts from, which is not modified
+     * @param solution the moves in compact notation separated by spaces, e.g. "D1H5 G8F6 H5F7"
+     * @return the packed moves of the legal prefix of the solution
+     */
+    private static int[] parseLine(Chess game, String solution) {
+        if (solution.isEmpty())
+            return new int[0];
+        Chess chess = game.clone();
+        String[] moves = solution.split(" ");
+        int[] line = new int[moves.length];
+        MoveList legalMoves = new MoveList();
+        int length = 0;
+        while (length < moves.length) {
+            chess.generateLegalMoves(legalMoves);
+            int found = SearchResult.NO_MOVE;
+            for (int i = 0; i < legalMoves.size() && found == SearchResult.NO_MOVE; i++)
+                if (Move.toCompactString(legalMoves.get(i)).equals(moves[length]))
+                    found = legalMoves.get(i);
+            if (found == SearchResult.NO_MOVE)
+                break;
+            chess.makeMove(found);
+            line[length++] = found;
+        }
+        return Arrays.copyOf(line, length);
+    }
+
+    /**
+     * Computes the average number of legal moves of the solving side along a line.
+     * @param game the position the line starts from, which is not modified
+     * @param line the packed moves of the line, both sides alternating
+     * @return the average number of legal moves in the positions where the solving side is to move
+     */
+    private static double branchingFactor(Chess game, int[] line) {
+        Chess chess = game.clone();
+        MoveList legalMoves = new MoveList();
+        long total = 0;
+        int positions = 0;
+        for (int ply = 0; ; ply++) {
+            if (ply % 2 == 0) {
+                chess.generateLegalMoves(legalMoves);
+                total += legalMoves.size();
+                positions++;
+            }
+            if (ply == line.length)
+                break;
+            chess.makeMove(line[ply]);
+        }
+        return (double) total / positions;
+    }
+
+    /**
+     * The fork-join task rating a range of puzzles. It splits the range in halves until it is
+     * at most SEQUENTIAL_PUZZLES long, and adds the reports of the halves in order.
+     */
+    private final class RatingTask extends RecursiveTask<RatingReport> {
+        private final Puzzle[] puzzles;
+        private final long firstIndex;
+        private final int from;
+        private final int to;
+
+        RatingTask(Puzzle[] puzzles, long firstIndex, int from, int to) {
+            this.puzzles = puzzles;
+            this.firstIndex = firstIndex;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected RatingReport compute() {
+            if (to - from <= SEQUENTIAL_PUZZLES) {
+                RatingReport report = new RatingReport();
+                for (int i = from; i < to; i++) {
+                    if (puzzles[i].getRating() > 0) {
+                        report.countSkipped();
+                        continue;
+                    }
+                    try {
+                        puzzles[i] = tag(puzzles[i], rate(puzzles[i]));
+                        report.countRated();
+                    } catch (IllegalArrangementException e) {
+                        report.countInvalid("puzzle " + (firstIndex + i), e.getMessage());
+                    }
+                }
+                return report;
+            }
+
+            int middle = (from + to) >>> 1;
+            RatingTask second = new RatingTask(puzzles, firstIndex, middle, to);
+            second.fork();
+            RatingReport report = new RatingTask(puzzles, firstIndex, from, middle).compute();
+            report.add(second.join());
+            return report;
+        }
+    }
+}
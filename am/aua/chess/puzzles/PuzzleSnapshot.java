@@ -0,0 +1,254 @@
+package am.aua.chess.puzzles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The PuzzleSnapshot class is an immutable view of the puzzle database at one point in time.
+ * A snapshot never changes, even while puzzles are added to the database, so any number of threads
+ * may read it without locking, and several calls on one snapshot always see the same puzzles.
+ * <p>
+ * A snapshot is made of the mapped binary database and of the few puzzles added since its last
+ * compaction, which are only logged in the journal. Those pending puzzles are kept sorted, together with
+ * their position among the records, so that both are seen as one sequence in natural order.
+ */
+public final class PuzzleSnapshot {
+    private static final Puzzle[] NO_PUZZLES = new Puzzle[0];
+
+    private final PuzzleFile file;
+    private final Puzzle[] pending;
+    /** The number of records that come before every pending puzzle. */
+    private final int[] pendingInsertions;
+    /** The index of every pending puzzle in the whole snapshot, increasing. */
+    private final int[] pendingPositions;
+    private final long[] pendingSignatures;
+    private volatile PuzzleIndex index;
+
+    /**
+     * Constructs a new PuzzleSnapshot of a mapped binary database.
+     * @param file the binary database, which is never modified
+     */
+    PuzzleSnapshot(PuzzleFile file) {
+        this.file = file;
+        this.pending = NO_PUZZLES;
+        this.pendingInsertions = new int[0];
+        this.pendingPositions = new int[0];
+        this.pendingSignatures = new long[0];
+    }
+
+    /**
+     * Constructs a new PuzzleSnapshot of another snapshot and of puzzles added to it. The binary database,
+     * the indexes if already built and what is known of the pending puzzles of the other snapshot are shared,
+     * so that only the added puzzles are looked up.
+     * @param previous the snapshot to add puzzles to
+     * @param added the added puzzles, sorted in natural order and none equal to a puzzle of the previous snapshot
+     */
+    PuzzleSnapshot(PuzzleSnapshot previous, List<Puzzle> added) {
+        this.file = previous.file;
+        this.index = previous.index;
+        int size = previous.pending.length + added.size();
+        this.pending = new Puzzle[size];
+        this.pendingInsertions = new int[size];
+        this.pendingPositions = new int[size];
+        this.pendingSignatures = new long[size];
+
+        for (int j = 0, p = 0, a = 0; j < size; j++) {
+            if (a == added.size() || (p < previous.pending.length && previous.pending[p].compareTo(added.get(a)) < 0)) {
+                pending[j] = previous.pending[p];
+                pendingInsertions[j] = previous.pendingInsertions[p];
+                pendingSignatures[j] = previous.pendingSignatures[p++];
+            }
+            else {
+                pending[j] = added.get(a++);
+                pendingInsertions[j] = -file.indexOf(pending[j]) - 1;
+                pendingSignatures[j] = PuzzleIndex.signatureKey(pending[j].getMaterialSignature());
+            }
+            pendingPositions[j] = pendingInsertions[j] + j;
+        }
+    }
+
+    /**
+     * Returns the binary database of the snapshot.
+     * @return the binary database
+     */
+    PuzzleFile getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the puzzles of the snapshot that are not yet in its binary database.
+     * @return the pending puzzles, sorted in natural order; the array must not be modified
+     */
+    Puzzle[] getPending() {
+        return pending;
+    }
+
+    /**
+     * Checks whether the snapshot holds a puzzle equal to the given one.
+     * @param puzzle the puzzle to look for
+     * @return true if an equal puzzle is in the binary database or pending
+     */
+    boolean contains(Puzzle puzzle) {
+        return file.indexOf(puzzle) >= 0 || Arrays.binarySearch(pending, puzzle) >= 0;
+    }
+
+    /**
+     * Returns the number of puzzles in the snapshot.
+     * @return the number of puzzles
+     */
+    public int getSize() {
+        return file.size() + pending.length;
+    }
+
+    /**
+     * Retrieves the puzzle at the specified index.
+     * @param index the index of the puzzle to retrieve
+     * @return the puzzle at the specified index
+     * @throws IndexOutOfBoundsException if the index is out of range (index < 0 || index >= getSize())
+     */
+    public Puzzle getPuzzle(int index) {
+        if (pending.length == 0)
+            return file.get(index);
+        if (index < 0 || index >= this.getSize())
+            throw new IndexOutOfBoundsException("No puzzle available at index " + index);
+        int j = Arrays.binarySearch(pendingPositions, index);
+        return j >= 0 ? pending[j] : file.get(index + j + 1);
+    }
+
+    /**
+     * Counts the puzzles matching the given query, using the indexes of the snapshot.
+     * @param query the difficulty, side to move, material signature and ratings to match
+     * @return the number of matching puzzles
+     */
+    public int countPuzzles(PuzzleQuery query) {
+        return this.getIndex().count(query) + this.matchPending(query).length;
+    }
+
+    /**
+     * Retrieves one page of the puzzles matching the given query, in the order of the query,
+     * using the indexes of the snapshot. Only the puzzles of the page are decoded.
+     * @param query the difficulty, side to move, material signature and ratings to match, and the order to serve them in
+     * @param page the number of the page, starting from 0
+     * @param pageSize the maximum number of puzzles per page
+     * @return the puzzles of the page, empty if the page is past the last matching puzzle
+     * @throws IllegalArgumentException if the page is negative or the page size is not positive
+     */
+    public List<Puzzle> findPuzzles(PuzzleQuery query, int page, int pageSize) {
+        if (page < 0 || pageSize < 1)
+            throw new IllegalArgumentException("The page should not be negative and the page size should be positive.");
+        PuzzleIndex index = this.getIndex();
+        int[] matches = this.matchPending(query);
+        int[] ranks = this.rankPending(index, query, matches);
+        int total = index.count(query) + matches.length;
+        int from = (int) Math.min((long) page * pageSize, total);
+        int to = (int) Math.min((long) from + pageSize, total);
+
+        // The records of the page are those after the ones that precede the page, less the pending puzzles among them.
+        int p = lowerBound(ranks, from);
+        int[] records = index.find(query, from - p, to - from);
+        List<Puzzle> puzzles = new ArrayList<>();
+        for (int rank = from, r = 0; rank < to; rank++) {
+            if (p < ranks.length && ranks[p] == rank)
+                puzzles.add(pending[matches[p++]]);
+            else
+                puzzles.add(file.get(records[r++]));
+        }
+        return puzzles;
+    }
+
+    /**
+     * Retrieves a puzzle matching the given query, picked uniformly at random, using the indexes of the snapshot.
+     * @param query the difficulty, side to move, material signature and ratings to match
+     * @param random the source of randomness, e.g. ThreadLocalRandom.current() when called from many threads
+     * @return a matching puzzle, or null if no puzzle matches
+     */
+    public Puzzle getRandomPuzzle(PuzzleQuery query, Random random) {
+        PuzzleIndex index = this.getIndex();
+        if (pending.length == 0) {
+            int i = index.pick(query, random);
+            return i < 0 ? null : file.get(i);
+        }
+        int[] matches = this.matchPending(query);
+        int total = index.count(query) + matches.length;
+        if (total == 0)
+            return null;
+        int rank = random.nextInt(total);
+        if (rank < matches.length)
+            return pending[matches[rank]];
+        return file.get(index.find(query, rank - matches.length, 1)[0]);
+    }
+
+    /**
+     * Finds the pending puzzles matching a query.
+     * @param query the query
+     * @return the indices of the matching pending puzzles, in the order of the query
+     */
+    private int[] matchPending(PuzzleQuery query) {
+        if (pending.length == 0)
+            return new int[0];
+        long signature = query.getMaterialSignature() == null ? 0 : PuzzleIndex.signatureKey(query.getMaterialSignature());
+        int[] matches = new int[pending.length];
+        int count = 0;
+        for (int j = 0; j < pending.length; j++) {
+            if ((query.getDifficulty() == null || query.getDifficulty() == pending[j].getDifficulty())
+                    && (query.getTurn() == null || query.getTurn() == pending[j].getTurn())
+                    && (query.getMaterialSignature() == null || signature == pendingSignatures[j])
+                    && query.matchesRating(pending[j].getRating()))
+                matches[count++] = j;
+        }
+        if (query.getOrder() == PuzzleQuery.Order.RATING) {
+            long[] keys = new long[count];
+            for (int k = 0; k < count; k++)
+                keys[k] = PuzzleIndex.ratingKey(pending[matches[k]].getDifficulty().ordinal(), pending[matches[k]].getRating(), matches[k]);
+            Arrays.sort(keys);
+            for (int k = 0; k < count; k++)
+                matches[k] = (int) keys[k];
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * Computes the rank of matching pending puzzles among all the matching puzzles of the snapshot.
+     * @param index the indexes of the binary database
+     * @param query the query
+     * @param matches the indices of the matching pending puzzles, in the order of the query
+     * @return the ranks of the matching pending puzzles, increasing
+     */
+    private int[] rankPending(PuzzleIndex index, PuzzleQuery query, int[] matches) {
+        Puzzle[] puzzles = new Puzzle[matches.length];
+        int[] insertions = new int[matches.length];
+        for (int k = 0; k < matches.length; k++) {
+            puzzles[k] = pending[matches[k]];
+            insertions[k] = pendingInsertions[matches[k]];
+        }
+        int[] ranks = index.rank(query, puzzles, insertions);
+        for (int k = 0; k < matches.length; k++)
+            ranks[k] += k;
+        return ranks;
+    }
+
+    /**
+     * Finds the first element of a sorted array that is not smaller than a value.
+     * @param sorted the sorted array
+     * @param value the value
+     * @return the index of that element, or the length of the array if there is none
+     */
+    private static int lowerBound(int[] sorted, int value) {
+        int position = Arrays.binarySearch(sorted, value);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    /**
+     * Returns the indexes of the binary database, building them on first use so that loading stays fast.
+     * Threads racing on the first use may each build the indexes; they are equal, and one of them is kept.
+     * @return the indexes of the binary database
+     */
+    private PuzzleIndex getIndex() {
+        PuzzleIndex built = this.index;
+        if (built == null)
+            this.index = built = new PuzzleIndex(file);
+        return built;
+    }
+}
@@ -0,0 +1,162 @@
+package am.aua.chess.puzzles;
+
+import am.aua.chess.core.Chess;
+import am.aua.chess.engine.MateResult;
+import am.aua.chess.engine.MateSolver;
+import am.aua.chess.engine.TranspositionTable;
+import am.aua.chess.utils.IllegalArrangementException;
+
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The PuzzleSolver class searches puzzles for forced mates of the side to move, on all the threads of a fork-join pool,
+ * and tags them with the minimal mate depth and the mating line.
+ * <p>
+ * Each thread runs its own MateSolver, and all of them share one transposition table, so that positions
+ * common to several puzzles are only proven once. A solved puzzle is also checked against its description:
+ * a description naming the winning side ("White to win") should name the side to move, and one stating
+ * the length of the mate ("mate in 3") should state the minimal one.
+ */
+public final class PuzzleSolver {
+    /** The number of puzzles read from the database and solved together. */
+    public static final int BATCH_SIZE = 1 << 12;
+    /** The number of puzzles below which a task solves them itself instead of splitting. */
+    private static final int SEQUENTIAL_PUZZLES = 4;
+    private static final Pattern WINNER = Pattern.compile("\\b(white|black)\\b[^.]*\\bwin");
+    private static final Pattern MATE_IN = Pattern.compile("\\bmate in (\\d+)");
+
+    private final ForkJoinPool pool;
+    private final int maxMoves;
+    private final long maxNodes;
+    private final TranspositionTable table = new TranspositionTable();
+    private final ThreadLocal<MateSolver> solvers = ThreadLocal.withInitial(() -> new MateSolver(table));
+
+    /**
+     * Constructs a new PuzzleSolver.
+     * @param pool the pool whose threads solve the puzzles
+     * @param maxMoves the largest number of moves of the side to move to search a mate within
+     * @param maxNodes the number of nodes after which the search of a puzzle gives up
+     * @throws IllegalArgumentException if the number of moves is not between 1 and MateSolver.MAX_MOVES,
+     *                                  or the number of nodes is not positive
+     */
+    public PuzzleSolver(ForkJoinPool pool, int maxMoves, long maxNodes) {
+        if (maxMoves < 1 || maxMoves > MateSolver.MAX_MOVES)
+            throw new IllegalArgumentException("The number of moves should be between 1 and " + MateSolver.MAX_MOVES + ".");
+        if (maxNodes < 1)
+            throw new IllegalArgumentException("The number of nodes should be positive.");
+        this.pool = pool;
+        this.maxMoves = maxMoves;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Searches a puzzle for a forced mate of the side to move, on the calling thread.
+     * @param puzzle the puzzle to solve
+     * @return the shortest mate with its line, or how far there is none
+     * @throws IllegalArrangementException if the puzzle is not a legal position
+     */
+    public MateResult solve(Puzzle puzzle) throws IllegalArrangementException {
+        PuzzleValidator.validate(puzzle);
+        return solvers.get().solve(new Chess(puzzle.getArrangement(), puzzle.getTurn()), maxMoves, maxNodes);
+    }
+
+    /**
+     * Returns a copy of a puzzle tagged with the result of its mate search. A puzzle without a proven mate
+     * keeps the tags it had.
+     * @param puzzle the solved puzzle
+     * @param result the result of its mate search
+     * @return the tagged puzzle, or the puzzle itself if the result is not a mate
+     */
+    public static Puzzle tag(Puzzle puzzle, MateResult result) {
+        if (!result.isMate())
+            return puzzle;
+        return new Puzzle(puzzle.getArrangement(), puzzle.getTurn(), puzzle.getDifficulty(), puzzle.getRating(),
+                puzzle.getDescription(), Math.min(result.getMateInMoves(), Puzzle.MAX_MATE_DEPTH), result.getLineString());
+    }
+
+    /**
+     * Checks the description of a solved puzzle against the result of its mate search.
+     * @param puzzle the solved puzzle
+     * @param result the result of its mate search
+     * @return how the description is contradicted, or null if it is not
+     */
+    public static String checkClaim(Puzzle puzzle, MateResult result) {
+        String description = puzzle.getDescription().toLowerCase(Locale.ROOT);
+        Matcher winner = WINNER.matcher(description);
+        if (winner.find() && !winner.group(1).equalsIgnoreCase(puzzle.getTurn().name()))
+            return "the description names " + winner.group(1) + " as the winner, but " + puzzle.getTurn() + " is to move";
+
+        Matcher mateIn = MATE_IN.matcher(description);
+        if (mateIn.find()) {
+            int claimed = Integer.parseInt(mateIn.group(1));
+            if (result.isMate() && result.getMateInMoves() != claimed)
+                return "the description claims a mate in " + claimed + ", but the shortest mate is in " + result.getMateInMoves();
+            if (!result.isMate() && result.getSearchedMoves() >= claimed)
+                return "the description claims a mate in " + claimed + ", but there is none";
+        }
+        return null;
+    }
+
+    /**
+     * Solves puzzles in parallel and replaces each one with its tagged copy.
+     * @param puzzles the puzzles to solve, replaced in place by their tagged copies
+     * @param firstIndex the database index of the first puzzle, used to locate puzzles in the report
+     * @return the report of the search
+     */
+    public SolveReport solve(Puzzle[] puzzles, long firstIndex) {
+        return pool.invoke(new SolveTask(puzzles, firstIndex, 0, puzzles.length));
+    }
+
+    /**
+     * The fork-join task solving a range of puzzles. It splits the range in halves until it is
+     * at most SEQUENTIAL_PUZZLES long, and adds the reports of the halves in order.
+     */
+    private final class SolveTask extends RecursiveTask<SolveReport> {
+        private final Puzzle[] puzzles;
+        private final long firstIndex;
+        private final int from;
+        private final int to;
+
+        SolveTask(Puzzle[] puzzles, long firstIndex, int from, int to) {
+            this.puzzles = puzzles;
+            this.firstIndex = firstIndex;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected SolveReport compute() {
+            if (to - from <= SEQUENTIAL_PUZZLES) {
+                SolveReport report = new SolveReport();
+                for (int i = from; i < to; i++) {
+                    String location = "puzzle " + (firstIndex + i);
+                    try {
+                        MateResult result = solve(puzzles[i]);
+                        if (result.isMate())
+                            report.countMate();
+                        else
+                            report.countNoMate(result.isExhausted());
+                        String contradiction = checkClaim(puzzles[i], result);
+                        if (contradiction != null)
+                            report.countContradicted(location, contradiction);
+                        puzzles[i] = tag(puzzles[i], result);
+                    } catch (IllegalArrangementException e) {
+                        report.countInvalid(location, e.getMessage());
+                    }
+                }
+                return report;
+            }
+
+            int middle = (from + to) >>> 1;
+            SolveTask second = new SolveTask(puzzles, firstIndex, middle, to);
+            second.fork();
+            SolveReport report = new SolveTask(puzzles, firstIndex, from, middle).compute();
+            report.add(second.join());
+            return report;
+        }
+    }
+}
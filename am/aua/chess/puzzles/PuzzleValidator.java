@@ -0,0 +1,220 @@
+package am.aua.chess.puzzles;
+
+import am.aua.chess.core.Bitboards;
+import am.aua.chess.core.Chess;
+import am.aua.chess.utils.IllegalArrangementException;
+import am.aua.chess.utils.InvalidNumberOfKingsException;
+import am.aua.chess.utils.MalformedPuzzleException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The PuzzleValidator class checks that puzzles are legal chess positions, on all the threads of a fork-join pool.
+ * <p>
+ * A puzzle is legal when its arrangement only holds pieces, each side has exactly one king and at most 8 pawns,
+ * no pawn stands on the first or the last rank, and the side not to move is not in check.
+ * A file is read in batches of BATCH_SIZE records; while one batch is parsed and checked in parallel,
+ * the next one is read, so memory stays bounded and the reader rarely waits.
+ */
+public final class PuzzleValidator {
+    /** The number of records read from a file and checked together. */
+    public static final int BATCH_SIZE = 1 << 14;
+    /** The number of records below which a task checks them itself instead of splitting. */
+    private static final int SEQUENTIAL_RECORDS = 256;
+    /** The squares of the first and the last rank. */
+    private static final long BACK_RANKS = 0xFF000000000000FFL;
+    private static final int MAX_PAWNS = 8;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a new PuzzleValidator.
+     * @param pool the pool whose threads check the puzzles
+     */
+    public PuzzleValidator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Checks that a puzzle is a legal chess position.
+     * @param puzzle the puzzle to check
+     * @throws IllegalArrangementException if the position is not legal, with the reason as its message
+     */
+    public static void validate(Puzzle puzzle) throws IllegalArrangementException {
+        String arrangement = puzzle.getArrangement();
+        for (int i = 0; i < arrangement.length(); i++) {
+            char c = arrangement.charAt(i);
+            if (c != ' ' && c != '-' && Bitboards.pieceIndexOf(c) == Bitboards.NO_PIECE)
+                throw new IllegalArrangementException("The arrangement contains a character that is not a piece: " + c);
+        }
+
+        Chess chess = new Chess(arrangement, puzzle.getTurn());
+        long pawns = 0;
+        for (Chess.PieceColor color : Chess.PieceColor.values()) {
+            if (Long.bitCount(chess.getBitboard(Bitboards.pieceIndex(color, Bitboards.KING))) != 1)
+                throw new InvalidNumberOfKingsException();
+            long colorPawns = chess.getBitboard(Bitboards.pieceIndex(color, Bitboards.PAWN));
+            if (Long.bitCount(colorPawns) > MAX_PAWNS)
+                throw new IllegalArrangementException(color + " has more than " + MAX_PAWNS + " pawns.");
+            pawns |= colorPawns;
+        }
+        if ((pawns & BACK_RANKS) != 0)
+            throw new IllegalArrangementException("A pawn stands on the first or the last rank.");
+
+        Chess.PieceColor waiting = puzzle.getTurn() == Chess.PieceColor.WHITE ? Chess.PieceColor.BLACK : Chess.PieceColor.WHITE;
+        if (chess.isKingUnderAttack(waiting))
+            throw new IllegalArrangementException("The side not to move (" + waiting + ") is in check.");
+    }
+
+    /**
+     * Validates every puzzle of a database snapshot.
+     * @param snapshot the snapshot to validate
+     * @return the report, locating bad puzzles by their index
+     */
+    public ValidationReport validate(PuzzleSnapshot snapshot) {
+        return pool.invoke(new ValidationTask((i, report) -> {
+            try {
+                validate(snapshot.getPuzzle(i));
+                report.countValid();
+            } catch (IllegalArrangementException e) {
+                report.countInvalid("puzzle " + i, e.getMessage());
+            }
+        }, 0, snapshot.getSize()));
+    }
+
+    /**
+     * Validates a file of puzzles, each represented by two lines: the first line contains the arrangement,
+     * turn and difficulty, and the second line contains the description. A first line holding only
+     * the number of puzzles, as in the database file, is skipped.
+     * @param path the path of the file
+     * @return the report, locating bad records by their first line
+     * @throws IOException if the file cannot be read
+     */
+    public ValidationReport validateFile(Path path) throws IOException {
+        ValidationReport report = new ValidationReport();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            Batch batch = new Batch();
+            String first = reader.readLine();
+            long line = 1;
+            if (first != null && first.trim().matches("\\d+")) {
+                first = reader.readLine();
+                line++;
+            }
+
+            ForkJoinTask<ValidationReport> running = null;
+            while (first != null) {
+                line = batch.read(reader, first, line);
+                ForkJoinTask<ValidationReport> next = pool.submit(new ValidationTask(batch, 0, batch.size));
+                if (running != null)
+                    report.add(running.join());
+                running = next;
+                batch = new Batch();
+                first = reader.readLine();
+            }
+            if (running != null)
+                report.add(running.join());
+        }
+        return report;
+    }
+
+    /**
+     * The RecordCheck interface checks one record of a sequence and counts it in a report.
+     */
+    private interface RecordCheck {
+        /**
+         * Checks one record.
+         * @param i the index of the record
+         * @param report the report to count the record in
+         */
+        void check(int i, ValidationReport report);
+    }
+
+    /**
+     * The Batch class holds records read from a file, and checks them by parsing them first.
+     */
+    private static final class Batch implements RecordCheck {
+        private final String[] details = new String[BATCH_SIZE];
+        private final String[] descriptions = new String[BATCH_SIZE];
+        private final long[] lines = new long[BATCH_SIZE];
+        private int size;
+
+        /**
+         * Reads up to BATCH_SIZE records.
+         * @param reader the reader of the file
+         * @param first the first line of the first record, already read
+         * @param line the line number of that line
+         * @return the line number of the line following the batch
+         * @throws IOException if the reader fails
+         */
+        long read(BufferedReader reader, String first, long line) throws IOException {
+            String next = first;
+            while (true) {
+                details[size] = next;
+                descriptions[size] = reader.readLine();
+                lines[size++] = line;
+                line += 2;
+                if (size == BATCH_SIZE || descriptions[size - 1] == null)
+                    return line;
+                next = reader.readLine();
+                if (next == null)
+                    return line;
+            }
+        }
+
+        /**
+         * Parses and validates one record.
+         * @param i the index of the record in the batch
+         * @param report the report to count the record in
+         */
+        public void check(int i, ValidationReport report) {
+            try {
+                if (descriptions[i] == null)
+                    throw new MalformedPuzzleException("The puzzle has no description line.");
+                validate(new Puzzle(details[i], descriptions[i]));
+                report.countValid();
+            } catch (MalformedPuzzleException | IllegalArrangementException e) {
+                report.countInvalid("line " + lines[i], e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The fork-join task checking a range of records. It splits the range in halves until it is
+     * at most SEQUENTIAL_RECORDS long, and adds the reports of the halves in order.
+     */
+    private static final class ValidationTask extends RecursiveTask<ValidationReport> {
+        private final RecordCheck records;
+        private final int from;
+        private final int to;
+
+        ValidationTask(RecordCheck records, int from, int to) {
+            this.records = records;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ValidationReport compute() {
+            if (to - from <= SEQUENTIAL_RECORDS) {
+                ValidationReport report = new ValidationReport();
+                for (int i = from; i < to; i++)
+                    records.check(i, report);
+                return report;
+            }
+
+            int middle = (from + to) >>> 1;
+            ValidationTask second = new ValidationTask(records, middle, to);
+            second.fork();
+            ValidationReport report = new ValidationTask(records, from, middle).compute();
+            report.add(second.join());
+            return report;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package am.aua.chess.puzzles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The RatingReport class summarizes a rating of puzzles: how many were rated, skipped as already rated
+ * and rejected as illegal. Only the first MAX_ERRORS error messages
+ * are kept, in the order of the puzzles, so that the report stays small however many puzzles are rated.
+ */
+public class RatingReport {
+    /** The maximum number of error messages kept. */
+    public static final int MAX_ERRORS = 100;
+
+    private long checked;
+    private long rated;
+    private long skipped;
+    private long invalid;
+    private final List<String> errors = new ArrayList<>();
+
+    /**
+     * Counts a puzzle that was rated.
+     */
+    void countRated() {
+        this.checked++;
+        this.rated++;
+    }
+
+    /**
+     * Counts a puzzle that was already rated.
+     */
+    void countSkipped() {
+        this.checked++;
+        this.skipped++;
+    }
+
+    /**
+     * Counts a puzzle that is not a legal position and keeps its error message.
+     * @param location where the puzzle is, e.g. "puzzle 12"
+     * @param message the reason the puzzle was not rated
+     */
+    void countInvalid(String location, String message) {
+        this.checked++;
+        this.invalid++;
+        if (this.errors.size() < MAX_ERRORS)
+            this.errors.add(location + ": " + message);
+    }
+
+    /**
+     * Adds the counts of a report on the puzzles that follow the ones of this report.
+     * @param that the report on the following puzzles
+     */
+    void add(RatingReport that) {
+        this.checked += that.checked;
+        this.rated += that.rated;
+        this.skipped += that.skipped;
+        this.invalid += that.invalid;
+        for (int i = 0; i < that.errors.size() && this.errors.size() < MAX_ERRORS; i++)
+            this.errors.add(that.errors.get(i));
+    }
+
+    /**
+     * Returns the number of puzzles checked.
+     * @return the number of puzzles checked
+     */
+    public long getChecked() {
+        return checked;
+    }
+
+    /**
+     * Returns the number of puzzles rated.
+     * @return the number of puzzles rated
+     */
+    public long getRated() {
+        return rated;
+    }
+
+    /**
+     * Returns the number of puzzles skipped because they were already rated.
+     * @return the number of skipped puzzles
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Returns the number of puzzles that are not legal positions.
+     * @return the number of illegal puzzles
+     */
+    public long getInvalid() {
+        return invalid;
+    }
+
+    /**
+     * Returns the error messages of the first illegal puzzles.
+     * @return an unmodifiable list of at most MAX_ERRORS messages, each starting with the location of its puzzle
+     */
+    public List<String> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Returns a string representation of the report.
+     * @return the counts, followed by the kept error messages, one per line
+     */
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        result.append(checked).append(" puzzles checked: ").append(rated).append(" rated, ")
+                .append(skipped).append(" already rated, ").append(invalid).append(" invalid");
+        for (String error : errors)
+            result.append("\n  ").append(error);
+        if (invalid > errors.size())
+            result.append("\n  ...");
+        return result.toString();
+    }
+}
@@ -0,0 +1,163 @@
+package am.aua.chess.puzzles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The SolveReport class summarizes a mate search over puzzles: how many were solved as forced mates,
+ * how many have no mate within the searched moves or could not be decided within the node budget,
+ * and which ones are illegal or contradict their description. Only the first MAX_ERRORS messages are kept,
+ * in the order of the puzzles, so that the report stays small however many puzzles are solved.
+ */
+public class SolveReport {
+    /** The maximum number of messages kept. */
+    public static final int MAX_ERRORS = 100;
+
+    private long checked;
+    private long mates;
+    private long noMates;
+    private long undecided;
+    private long invalid;
+    private long contradicted;
+    private final List<String> errors = new ArrayList<>();
+
+    /**
+     * Counts a puzzle whose side to move mates by force.
+     */
+    void countMate() {
+        this.checked++;
+        this.mates++;
+    }
+
+    /**
+     * Counts a puzzle without a forced mate within the searched moves.
+     * @param exhausted whether the node budget ran out before the search was conclusive
+     */
+    void countNoMate(boolean exhausted) {
+        this.checked++;
+        if (exhausted)
+            this.undecided++;
+        else
+            this.noMates++;
+    }
+
+    /**
+     * Counts a puzzle that is not a legal position and keeps its error message.
+     * @param location where the puzzle is, e.g. "puzzle 12"
+     * @param message the reason the puzzle was not solved
+     */
+    void countInvalid(String location, String message) {
+        this.checked++;
+        this.invalid++;
+        this.keep(location, message);
+    }
+
+    /**
+     * Counts a solved puzzle whose description claims something the solution disproves, and keeps the message.
+     * The puzzle is also counted by countMate or countNoMate.
+     * @param location where the puzzle is, e.g. "puzzle 12"
+     * @param message how the description is contradicted
+     */
+    void countContradicted(String location, String message) {
+        this.contradicted++;
+        this.keep(location, message);
+    }
+
+    /**
+     * Keeps a message if fewer than MAX_ERRORS are kept.
+     * @param location where the puzzle is
+     * @param message the message
+     */
+    private void keep(String location, String message) {
+        if (this.errors.size() < MAX_ERRORS)
+            this.errors.add(location + ": " + message);
+    }
+
+    /**
+     * Adds the counts of a report on the puzzles that follow the ones of this report.
+     * @param that the report on the following puzzles
+     */
+    void add(SolveReport that) {
+        this.checked += that.checked;
+        this.mates += that.mates;
+        this.noMates += that.noMates;
+        this.undecided += that.undecided;
+        this.invalid += that.invalid;
+        this.contradicted += that.contradicted;
+        for (int i = 0; i < that.errors.size() && this.errors.size() < MAX_ERRORS; i++)
+            this.errors.add(that.errors.get(i));
+    }
+
+    /**
+     * Returns the number of puzzles checked.
+     * @return the number of puzzles checked
+     */
+    public long getChecked() {
+        return checked;
+    }
+
+    /**
+     * Returns the number of puzzles solved as forced mates.
+     * @return the number of mates
+     */
+    public long getMates() {
+        return mates;
+    }
+
+    /**
+     * Returns the number of puzzles proven to have no mate within the searched moves.
+     * @return the number of puzzles without a mate
+     */
+    public long getNoMates() {
+        return noMates;
+    }
+
+    /**
+     * Returns the number of puzzles whose search ran out of nodes before it was conclusive.
+     * @return the number of undecided puzzles
+     */
+    public long getUndecided() {
+        return undecided;
+    }
+
+    /**
+     * Returns the number of puzzles that are not legal positions.
+     * @return the number of illegal puzzles
+     */
+    public long getInvalid() {
+        return invalid;
+    }
+
+    /**
+     * Returns the number of puzzles whose description is contradicted by the solution.
+     * @return the number of contradicted puzzles
+     */
+    public long getContradicted() {
+        return contradicted;
+    }
+
+    /**
+     * Returns the messages of the first illegal and contradicted puzzles.
+     * @return an unmodifiable list of at most MAX_ERRORS messages, each starting with the location of its puzzle
+     */
+    public List<String> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Returns a string representation of the report.
+     * @return the counts, followed by the kept messages, one per line
+     */
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        result.append(checked).append(" puzzles checked: ").append(mates).append(" mates, ")
+                .append(noMates).append(" without mate, ").append(undecided).append(" undecided, ")
+                .append(invalid).append(" invalid, ").append(contradicted).append(" contradicting their description");
+        for (String error : errors)
+            result.append("\n  ").append(error);
+        if (invalid + contradicted > errors.size())
+            result.append("\n  ...");
+        return result.toString();
+    }
+}
@@ -0,0 +1,96 @@
+package am.aua.chess.puzzles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The ValidationReport class summarizes a validation of puzzles: how many records were checked
+ * and which of them are bad. Only the first MAX_ERRORS error messages are kept, in the order of the records,
+ * so that the report stays small however many records are validated.
+ */
+public class ValidationReport {
+    /** The maximum number of error messages kept. */
+    public static final int MAX_ERRORS = 100;
+
+    private long checked;
+    private long invalid;
+    private final List<String> errors = new ArrayList<>();
+
+    /**
+     * Counts a record that is a legal puzzle.
+     */
+    void countValid() {
+        this.checked++;
+    }
+
+    /**
+     * Counts a bad record and keeps its error message.
+     * @param location where the record is, e.g. "line 12"
+     * @param message the reason the record was rejected
+     */
+    void countInvalid(String location, String message) {
+        this.checked++;
+        this.invalid++;
+        if (this.errors.size() < MAX_ERRORS)
+            this.errors.add(location + ": " + message);
+    }
+
+    /**
+     * Adds the counts of a report on the records that follow the ones of this report.
+     * @param that the report on the following records
+     */
+    void add(ValidationReport that) {
+        this.checked += that.checked;
+        this.invalid += that.invalid;
+        for (int i = 0; i < that.errors.size() && this.errors.size() < MAX_ERRORS; i++)
+            this.errors.add(that.errors.get(i));
+    }
+
+    /**
+     * Returns the number of records checked.
+     * @return the number of records checked
+     */
+    public long getChecked() {
+        return checked;
+    }
+
+    /**
+     * Returns the number of legal puzzles.
+     * @return the number of legal puzzles
+     */
+    public long getValid() {
+        return checked - invalid;
+    }
+
+    /**
+     * Returns the number of bad records.
+     * @return the number of bad records
+     */
+    public long getInvalid() {
+        return invalid;
+    }
+
+    /**
+     * Returns the error messages of the first bad records.
+     * @return an unmodifiable list of at most MAX_ERRORS messages, each starting with the location of its record
+     */
+    public List<String> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Returns a string representation of the report.
+     * @return the counts, followed by the kept error messages, one per line
+     */
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        result.append(checked).append(" records checked: ").append(this.getValid()).append(" valid, ")
+                .append(invalid).append(" invalid");
+        for (String error : errors)
+            result.append("\n  ").append(error);
+        if (invalid > errors.size())
+            result.append("\n  ...");
+        return result.toString();
+    }
+}
@@ -50,7 +50,7 @@ public class ChessUI  extends JFrame implements ActionListener {
     private void addCells(){
         for (int i = Chess.BOARD_RANKS-1; i>=0; i--) {
             for (int j = 0; j< Chess.BOARD_FILES; j++) {
-                Position p = new Position(i, j);
+                Position p = Position.generateFromRankAndFile(i, j);
                 Piece piece = game.getPieceAt(p);
                 board[i][j] = new BoardSquare(i, j, (i+j)%2==1);
                 if (piece != null){
@@ -119,7 +119,7 @@ public class ChessUI  extends JFrame implements ActionListener {
     public void updatePieces(){
         for (int i = 0; i<Chess.BOARD_RANKS; i++) {
             for (int j = 0; j< Chess.BOARD_FILES; j++) {
-                Position p = new Position(i, j);
+                Position p = Position.generateFromRankAndFile(i, j);
                 Piece piece = game.getPieceAt(p);
                 if (piece != null){
                     board[i][j].setPiece(piece.toString());
@@ -7,22 +7,16 @@ import am.aua.chess.core.Position;
 public class ArrayTools {
     
     /**
-     * Creates a deep copy of a 2D character array.
+     * Creates a copy of a 2D array of pieces.
+     * Pieces are immutable and shared, so only the rows are copied.
      *
-     * @param array The original 2D character array.
-     * @return A deep copy of the original array.
+     * @param array The original 2D array of pieces.
+     * @return A copy of the original array.
      */
     public static Piece[][] deepCopy(Piece[][] array) {
         Piece[][] copy = new Piece[array.length][];
-        for (int i = 0; i < array.length; i++) {
-            copy[i] = new Piece[array[i].length];
-            for (int j = 0; j < array[i].length; j++) {
-                if (array[i][j] == null)
-                    copy[i][j] = null;
-                else
-                    copy[i][j] = array[i][j].clone();
-            }
-        }
+        for (int i = 0; i < array.length; i++)
+            copy[i] = array[i] == null ? null : array[i].clone();
         return copy;
     }
 
@@ -0,0 +1,26 @@
+package am.aua.chess.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The BenchmarkMain class runs the benchmarks with the GC profiler, so that every result reports
+ * the allocation rate per operation next to the operations per second.
+ */
+public class BenchmarkMain {
+    /**
+     * Runs the benchmarks selected by the usual JMH command line options.
+     * @param args the JMH command line options, e.g. "ChessBenchmark.performMove -p puzzle=0"
+     * @throws Exception if the options are malformed or a benchmark fails
+     */
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,123 @@
+package am.aua.chess.benchmarks;
+
+import am.aua.chess.core.Bitboards;
+import am.aua.chess.core.BoardView;
+import am.aua.chess.core.Chess;
+import am.aua.chess.core.MoveList;
+import am.aua.chess.core.Piece;
+import am.aua.chess.core.Position;
+import am.aua.chess.utils.ArrayTools;
+import am.aua.chess.utils.KingUnderAttackException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ChessBenchmark class measures the hot paths of the game on the positions of the database puzzles:
+ * performing a move, checking whether a king is in check, listing the destinations of the pieces,
+ * copying the board and reading it through a board view.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessBenchmark {
+    /** The number of the puzzle whose position is measured, in the order of the database file. */
+    @Param({"0", "2"})
+    public int puzzle;
+
+    private Chess chess;
+    private int move;
+    private final List<Piece> pieces = new ArrayList<>();
+    private final List<Position> origins = new ArrayList<>();
+    private Piece[][] board;
+
+    /**
+     * Sets up the position of the puzzle, the first legal move of the side to move,
+     * and the pieces of the side to move with their squares.
+     * @throws Exception if the puzzle cannot be read
+     */
+    @Setup
+    public void setUp() throws Exception {
+        chess = PuzzlePositions.read(puzzle);
+        MoveList legalMoves = new MoveList();
+        chess.generateLegalMoves(legalMoves);
+        move = legalMoves.get(0);
+
+        for (int square = 0; square < Bitboards.SQUARES; square++) {
+            Position position = Position.generateFromSquare(square);
+            Piece piece = chess.getPieceAt(position);
+            if (piece != null && piece.getPieceColor() == chess.getTurn()) {
+                pieces.add(piece);
+                origins.add(position);
+            }
+        }
+        board = chess.getBoard();
+    }
+
+    /**
+     * Performs a legal move, given in its packed form, and takes it back.
+     * @return whether the move was performed
+     * @throws KingUnderAttackException never, as the move is legal
+     */
+    @Benchmark
+    public boolean performMove() throws KingUnderAttackException {
+        boolean performed = chess.performMove(move);
+        chess.unmakeMove();
+        return performed;
+    }
+
+    /**
+     * Checks whether the king of the side to move is in check.
+     * @return whether it is in check
+     */
+    @Benchmark
+    public boolean isKingUnderAttack() {
+        return chess.isKingUnderAttack(chess.getTurn());
+    }
+
+    /**
+     * Lists the destinations of every piece of the side to move.
+     * @param blackhole the sink of the destination lists
+     */
+    @Benchmark
+    public void allDestinations(Blackhole blackhole) {
+        for (int i = 0; i < pieces.size(); i++)
+            blackhole.consume(pieces.get(i).allDestinations(chess, origins.get(i)));
+    }
+
+    /**
+     * Copies the board, piece by piece.
+     * @return the copy
+     */
+    @Benchmark
+    public Piece[][] deepCopy() {
+        return ArrayTools.deepCopy(board);
+    }
+
+    /**
+     * Reads every square of the board through its view.
+     * @param blackhole the sink of the pieces
+     */
+    @Benchmark
+    public void readBoardView(Blackhole blackhole) {
+        BoardView view = chess.getBoardView();
+        for (int square = 0; square < Bitboards.SQUARES; square++)
+            blackhole.consume(view.pieceAt(square));
+    }
+}
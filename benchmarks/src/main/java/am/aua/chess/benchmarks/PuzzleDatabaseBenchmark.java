@@ -0,0 +1,108 @@
+package am.aua.chess.benchmarks;
+
+import am.aua.chess.puzzles.PuzzleDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The PuzzleDatabaseBenchmark class measures loading the puzzle database of the repository,
+ * both from an up-to-date binary copy and with the text database converted again.
+ * The benchmarks are run from the root of the repository, where the database file is; the database file
+ * is copied into a temporary directory first, so the files of the repository are left untouched.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PuzzleDatabaseBenchmark {
+    private Path directory;
+    private PuzzleDatabase database;
+
+    /**
+     * Copies the database file into a temporary directory and loads the copy once, converting it.
+     * @throws Exception if the database file cannot be copied
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("puzzles");
+        Path text = directory.resolve("database.txt");
+        Files.copy(Paths.get(PuzzleDatabase.DATABASE_PATH), text);
+        database = new PuzzleDatabase(text.toString(), this.binaryPath().toString(),
+                directory.resolve("database.journal").toString());
+    }
+
+    /**
+     * Deletes the temporary directory and the files in it.
+     * @throws Exception if the directory cannot be walked
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Returns the path to the binary copy of the benchmarked database.
+     * @return the path to the binary copy
+     */
+    Path binaryPath() {
+        return directory.resolve("database.bin");
+    }
+
+    /**
+     * Loads the database from its binary copy.
+     * @return the number of puzzles
+     */
+    @Benchmark
+    public int load() {
+        database.load();
+        return database.getSize();
+    }
+
+    /**
+     * The state of the conversion benchmark, which deletes the binary copy before every load.
+     */
+    @State(Scope.Benchmark)
+    public static class StaleBinary {
+        /**
+         * Deletes the binary copy, so that the next load converts the text database.
+         * @param benchmark the state holding the benchmarked database
+         * @throws Exception if the binary copy cannot be deleted
+         */
+        @Setup(Level.Invocation)
+        public void deleteBinary(PuzzleDatabaseBenchmark benchmark) throws Exception {
+            Files.deleteIfExists(benchmark.binaryPath());
+        }
+    }
+
+    /**
+     * Loads the database after converting the text database into a new binary copy.
+     * @param stale the state deleting the binary copy
+     * @return the number of puzzles
+     */
+    @Benchmark
+    public int convertAndLoad(StaleBinary stale) {
+        database.load();
+        return database.getSize();
+    }
+}
@@ -0,0 +1,44 @@
+package am.aua.chess.benchmarks;
+
+import am.aua.chess.core.Chess;
+import am.aua.chess.puzzles.Puzzle;
+import am.aua.chess.puzzles.PuzzleDatabase;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * The PuzzlePositions class reads the positions the benchmarks run on from the text database,
+ * so that they measure the game on the positions it is actually played from.
+ */
+final class PuzzlePositions {
+    private PuzzlePositions() {
+    }
+
+    /**
+     * Reads a puzzle of the text database and sets up its position.
+     * The benchmarks are run from the root of the repository, where the database file is.
+     *
+     * @param number the number of the puzzle, in the order of the file, starting from 0
+     * @return the game at the position of the puzzle
+     * @throws Exception if the database cannot be read, has no such puzzle or the puzzle is malformed
+     */
+    static Chess read(int number) throws Exception {
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(PuzzleDatabase.DATABASE_PATH), StandardCharsets.UTF_8)) {
+            reader.readLine();
+            for (int i = 0; ; i++) {
+                String details = reader.readLine();
+                String description = reader.readLine();
+                if (details == null || description == null)
+                    throw new IOException("The database file has no puzzle " + number + ".");
+                if (i == number) {
+                    Puzzle puzzle = new Puzzle(details, description);
+                    return new Chess(puzzle.getArrangement(), puzzle.getTurn());
+                }
+            }
+        }
+    }
+}